@@ -4,6 +4,8 @@ import com.artemis.utils.Bag;
 import com.artemis.utils.IntBag;
 import net.mostlyoriginal.api.MyBenchmark;
 import net.mostlyoriginal.api.utils.QuadTree;
+import net.mostlyoriginal.api.utils.SpatialHashGrid;
+import net.mostlyoriginal.api.utils.SpatialIndex;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -11,7 +13,10 @@ import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Benchmarks for QuadTree
+ * Benchmarks for QuadTree and SpatialHashGrid
+ *
+ * point queries use entity positions, small area queries entity bounds and large area queries
+ * random bounds scaled by searchScale
  *
  * NOTE run from root dir, mcn clean package, java -jar contrib-benchmark/target/microbenchmarks.jar
  *
@@ -44,6 +49,7 @@ public class QuadTreeBenchmark extends MyBenchmark {
 	float searchScale;
 
 	protected QuadTree quadTree;
+	protected SpatialHashGrid hashGrid;
 	protected Bag<TestData> testData;
 	protected Bag<TestData> searchData;
 	protected IntBag fill;
@@ -66,6 +72,8 @@ public class QuadTreeBenchmark extends MyBenchmark {
 	@Setup(Level.Iteration)
 	public void setup() {
 		quadTree = new QuadTree(0, 0, treeSize, treeSize);
+		// about one entity per cell
+		hashGrid = new SpatialHashGrid(treeSize / (float)Math.sqrt(entities), entities);
 		testData = new Bag<>(entities);
 		fill = new IntBag();
 		searchData = new Bag<>(1000);
@@ -80,6 +88,7 @@ public class QuadTreeBenchmark extends MyBenchmark {
 			data.y = random.nextFloat() * (treeSize - data.width);
 			testData.add(data);
 			quadTree.insert(data.id, data.x, data.y, data.width, data.height);
+			hashGrid.insert(data.id, data.x, data.y, data.width, data.height);
 		}
 		for (int id = 0; id < 1000; id++) {
 			TestData search = new TestData();
@@ -94,6 +103,7 @@ public class QuadTreeBenchmark extends MyBenchmark {
 	@TearDown(Level.Iteration)
 	public void tearDown () {
 		quadTree.reset();
+		hashGrid.reset();
 		fill.clear();
 	}
 
@@ -118,7 +128,7 @@ public class QuadTreeBenchmark extends MyBenchmark {
 		return quadTree;
 	}
 
-	static QuadTree getPoint(QuadTree tree, TestData data, IntBag fill) {
+	static SpatialIndex getPoint(SpatialIndex tree, TestData data, IntBag fill) {
 		tree.get(fill, data.x, data.y);
 		fill.clear();
 		return tree;
@@ -132,7 +142,7 @@ public class QuadTreeBenchmark extends MyBenchmark {
 		return quadTree;
 	}
 
-	static QuadTree getPointExact(QuadTree tree, TestData data, IntBag fill) {
+	static SpatialIndex getPointExact(SpatialIndex tree, TestData data, IntBag fill) {
 		tree.getExact(fill, data.x, data.y);
 		fill.clear();
 		return tree;
@@ -147,7 +157,7 @@ public class QuadTreeBenchmark extends MyBenchmark {
 		return quadTree;
 	}
 
-	static QuadTree get(QuadTree tree, TestData data, IntBag fill) {
+	static SpatialIndex get(SpatialIndex tree, TestData data, IntBag fill) {
 		tree.get(fill, data.x, data.y, data.width, data.height);
 		fill.clear();
 		return tree;
@@ -161,12 +171,60 @@ public class QuadTreeBenchmark extends MyBenchmark {
 		return quadTree;
 	}
 
-	static QuadTree getExact(QuadTree tree, TestData data, IntBag fill) {
+	static SpatialIndex getExact(SpatialIndex tree, TestData data, IntBag fill) {
 		tree.getExact(fill, data.x, data.y, data.width, data.height);
 		fill.clear();
 		return tree;
 	}
 
+	@Benchmark
+	public QuadTree quad_tree_get_exact_large_area_benchmark(Blackhole bh) {
+		for (int i = 0; i < searchData.size(); i++) {
+			bh.consume(getExact(quadTree, searchData.get(i), fill));
+		}
+		return quadTree;
+	}
+
+	@Benchmark
+	public SpatialHashGrid hash_grid_get_point_benchmark(Blackhole bh) {
+		for (int i = 0; i < testData.size(); i++) {
+			bh.consume(getPoint(hashGrid, testData.get(i), fill));
+		}
+		return hashGrid;
+	}
+
+	@Benchmark
+	public SpatialHashGrid hash_grid_get_exact_point_benchmark(Blackhole bh) {
+		for (int i = 0; i < testData.size(); i++) {
+			bh.consume(getPointExact(hashGrid, testData.get(i), fill));
+		}
+		return hashGrid;
+	}
+
+	@Benchmark
+	public SpatialHashGrid hash_grid_get_benchmark(Blackhole bh) {
+		for (int i = 0; i < testData.size(); i++) {
+			bh.consume(get(hashGrid, testData.get(i), fill));
+		}
+		return hashGrid;
+	}
+
+	@Benchmark
+	public SpatialHashGrid hash_grid_get_exact_benchmark(Blackhole bh) {
+		for (int i = 0; i < testData.size(); i++) {
+			bh.consume(getExact(hashGrid, testData.get(i), fill));
+		}
+		return hashGrid;
+	}
+
+	@Benchmark
+	public SpatialHashGrid hash_grid_get_exact_large_area_benchmark(Blackhole bh) {
+		for (int i = 0; i < searchData.size(); i++) {
+			bh.consume(getExact(hashGrid, searchData.get(i), fill));
+		}
+		return hashGrid;
+	}
+
 
 	@Benchmark
 	public void linear_point_benchmark(Blackhole bh) {
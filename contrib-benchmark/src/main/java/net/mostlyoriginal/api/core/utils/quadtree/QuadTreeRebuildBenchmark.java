@@ -0,0 +1,80 @@
+package net.mostlyoriginal.api.core.utils.quadtree;
+
+import net.mostlyoriginal.api.MyBenchmark;
+import net.mostlyoriginal.api.utils.QuadTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for moving every entity in a QuadTree each frame, {@link QuadTree#rebuild} vs {@link QuadTree#update}
+ *
+ * NOTE run from root dir, mcn clean package, java -jar contrib-benchmark/target/microbenchmarks.jar
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+public class QuadTreeRebuildBenchmark extends MyBenchmark {
+	@Param({"10000", "100000"})
+	int entities;
+	@Param({"256"})
+	int treeSize;
+
+	protected QuadTree quadTree;
+	protected int[] ids;
+	protected float[] width;
+	protected float[] height;
+	// two sets of positions, entities swap between them every frame
+	protected float[][] x = new float[2][];
+	protected float[][] y = new float[2][];
+	protected int frame;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		quadTree = new QuadTree(0, 0, treeSize, treeSize);
+		ids = new int[entities];
+		width = new float[entities];
+		height = new float[entities];
+		Random random = new Random(0);
+		for (int set = 0; set < 2; set++) {
+			x[set] = new float[entities];
+			y[set] = new float[entities];
+		}
+		for (int id = 0; id < entities; id++) {
+			ids[id] = id;
+			width[id] = 0.025f + random.nextFloat() * 0.075f;
+			height[id] = 0.025f + random.nextFloat() * 0.075f;
+			for (int set = 0; set < 2; set++) {
+				x[set][id] = random.nextFloat() * (treeSize - width[id]);
+				y[set][id] = random.nextFloat() * (treeSize - height[id]);
+			}
+			quadTree.insert(id, x[0][id], y[0][id], width[id], height[id]);
+		}
+		frame = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown () {
+		quadTree.reset();
+	}
+
+	@Benchmark
+	public QuadTree quad_tree_update_all_benchmark() {
+		int set = ++frame & 1;
+		float[] xs = x[set];
+		float[] ys = y[set];
+		for (int id = 0; id < entities; id++) {
+			quadTree.update(id, xs[id], ys[id], width[id], height[id]);
+		}
+		return quadTree;
+	}
+
+	@Benchmark
+	public QuadTree quad_tree_rebuild_benchmark() {
+		int set = ++frame & 1;
+		quadTree.rebuild(ids, x[set], y[set], width, height, entities);
+		return quadTree;
+	}
+}
@@ -0,0 +1,202 @@
+package net.mostlyoriginal.api.core.utils.quadtree;
+
+import com.artemis.utils.IntBag;
+import net.mostlyoriginal.api.MyBenchmark;
+import net.mostlyoriginal.api.utils.QuadTree;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for per frame QuadTree workloads, moving every entity, spawn/despawn churn and
+ * move followed by queries, compared with a linear scan, on uniform and clustered distributions
+ *
+ * NOTE run from root dir, mcn clean package, java -cp contrib-benchmark/target/microbenchmarks.jar
+ * net.mostlyoriginal.api.core.utils.quadtree.QuadTreeWorkloadBenchmark to run with the GC profiler
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+public class QuadTreeWorkloadBenchmark extends MyBenchmark {
+	@Param({"1000", "10000"})
+	int entities;
+	@Param({"uniform", "clustered"})
+	String distribution;
+	@Param({"256"})
+	int treeSize;
+
+	/**
+	 * Count of clusters for clustered distribution
+	 */
+	private final static int CLUSTERS = 8;
+	/**
+	 * Fraction of entities that despawn and spawn each frame in churn benchmark
+	 */
+	private final static float CHURN = 0.1f;
+	/**
+	 * Count of area queries each frame in query benchmarks
+	 */
+	private final static int QUERIES = 100;
+	private final static float QUERY_SIZE = 8;
+
+	protected QuadTree quadTree;
+	protected float[] x;
+	protected float[] y;
+	protected float[] vx;
+	protected float[] vy;
+	protected float[] width;
+	protected float[] height;
+	protected float[] clusterX;
+	protected float[] clusterY;
+	protected float[] queryX;
+	protected float[] queryY;
+	protected IntBag fill;
+	protected Random random;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		quadTree = new QuadTree(0, 0, treeSize, treeSize);
+		x = new float[entities];
+		y = new float[entities];
+		vx = new float[entities];
+		vy = new float[entities];
+		width = new float[entities];
+		height = new float[entities];
+		fill = new IntBag();
+		random = new Random(0);
+		clusterX = new float[CLUSTERS];
+		clusterY = new float[CLUSTERS];
+		for (int i = 0; i < CLUSTERS; i++) {
+			clusterX[i] = treeSize * (0.1f + random.nextFloat() * 0.8f);
+			clusterY[i] = treeSize * (0.1f + random.nextFloat() * 0.8f);
+		}
+		for (int id = 0; id < entities; id++) {
+			width[id] = 0.025f + random.nextFloat() * 0.075f;
+			height[id] = 0.025f + random.nextFloat() * 0.075f;
+			spawn(id);
+			vx[id] = random.nextFloat() - 0.5f;
+			vy[id] = random.nextFloat() - 0.5f;
+			quadTree.insert(id, x[id], y[id], width[id], height[id]);
+		}
+		queryX = new float[QUERIES];
+		queryY = new float[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			// query around entities, so clustered queries hit the dense areas
+			int id = random.nextInt(entities);
+			queryX[i] = x[id] - QUERY_SIZE / 2;
+			queryY[i] = y[id] - QUERY_SIZE / 2;
+		}
+	}
+
+	/**
+	 * Pick new position for given entity, based on distribution
+	 */
+	private void spawn(int id) {
+		if ("clustered".equals(distribution)) {
+			int cluster = random.nextInt(CLUSTERS);
+			x[id] = clamp(clusterX[cluster] + (float)random.nextGaussian() * treeSize / 32, treeSize - width[id]);
+			y[id] = clamp(clusterY[cluster] + (float)random.nextGaussian() * treeSize / 32, treeSize - height[id]);
+		} else {
+			x[id] = random.nextFloat() * (treeSize - width[id]);
+			y[id] = random.nextFloat() * (treeSize - height[id]);
+		}
+	}
+
+	private static float clamp(float value, float max) {
+		return Math.max(0, Math.min(value, max));
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown () {
+		quadTree.reset();
+		fill.clear();
+	}
+
+	/**
+	 * Move every entity a bit, bouncing off tree bounds
+	 */
+	private void move() {
+		for (int id = 0; id < entities; id++) {
+			float nx = x[id] + vx[id];
+			float ny = y[id] + vy[id];
+			if (nx < 0 || nx > treeSize - width[id]) {
+				vx[id] = -vx[id];
+				nx = x[id] + vx[id];
+			}
+			if (ny < 0 || ny > treeSize - height[id]) {
+				vy[id] = -vy[id];
+				ny = y[id] + vy[id];
+			}
+			x[id] = nx;
+			y[id] = ny;
+		}
+	}
+
+	@Benchmark
+	public QuadTree quad_tree_move_benchmark() {
+		move();
+		for (int id = 0; id < entities; id++) {
+			quadTree.update(id, x[id], y[id], width[id], height[id]);
+		}
+		return quadTree;
+	}
+
+	@Benchmark
+	public QuadTree quad_tree_churn_benchmark() {
+		int churn = (int)(entities * CHURN);
+		for (int i = 0; i < churn; i++) {
+			int id = random.nextInt(entities);
+			quadTree.remove(id);
+			spawn(id);
+			quadTree.insert(id, x[id], y[id], width[id], height[id]);
+		}
+		return quadTree;
+	}
+
+	@Benchmark
+	public IntBag quad_tree_move_query_benchmark() {
+		move();
+		for (int id = 0; id < entities; id++) {
+			quadTree.update(id, x[id], y[id], width[id], height[id]);
+		}
+		for (int i = 0; i < QUERIES; i++) {
+			fill.clear();
+			quadTree.getExact(fill, queryX[i], queryY[i], QUERY_SIZE, QUERY_SIZE);
+		}
+		return fill;
+	}
+
+	@Benchmark
+	public IntBag linear_move_query_benchmark() {
+		move();
+		for (int i = 0; i < QUERIES; i++) {
+			fill.clear();
+			float qx = queryX[i];
+			float qy = queryY[i];
+			for (int id = 0; id < entities; id++) {
+				if (x[id] < qx + QUERY_SIZE && x[id] + width[id] > qx && y[id] < qy + QUERY_SIZE && y[id] + height[id] > qy) {
+					fill.add(id);
+				}
+			}
+		}
+		return fill;
+	}
+
+	/**
+	 * Run this benchmark with GC profiler
+	 */
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(".*" + QuadTreeWorkloadBenchmark.class.getSimpleName() + ".*")
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,59 @@
+package net.mostlyoriginal.api.event.common;
+
+import com.artemis.utils.Bag;
+import net.mostlyoriginal.api.MyBenchmark;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark scheduling pooled delayed events and advancing frames until all expired.
+ *
+ * Delays are spread over a minute, so timers cascade through multiple levels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+public class EventTimerWheelBenchmark extends MyBenchmark {
+
+	public static final float FRAME = 1 / 60f;
+	public static final float MAX_DELAY = 60f;
+
+	@Param({"1000", "10000"})
+	int timers;
+
+	public static class TimerEvent implements Event {
+		int entityId;
+	}
+
+	private EventTimerWheel wheel;
+	private final Bag<Event> expired = new Bag<>();
+	private float[] delays;
+
+	@Setup
+	public void setup() {
+		wheel = new EventTimerWheel();
+		final Random random = new Random(1);
+		delays = new float[timers];
+		for (int i = 0; i < timers; i++) {
+			delays[i] = random.nextFloat() * MAX_DELAY;
+		}
+	}
+
+	/** Schedule a batch and advance frames until all expired, including empty frames. */
+	@Benchmark
+	public int schedule_and_expire_benchmark() {
+		for (int i = 0; i < timers; i++) {
+			wheel.schedule(TimerEvent.class, delays[i]).entityId = i;
+		}
+		int count = 0;
+		while (wheel.size() > 0) {
+			wheel.advance(FRAME, expired);
+			count += expired.size();
+			expired.clear();
+		}
+		return count;
+	}
+}
@@ -20,6 +20,33 @@ public class BaselineDispatcherBenchmark extends DispatcherBenchmark {
 		public void register(EventListener listener) {
 		}
 
+		@Override
+		public boolean unregister(EventListener listener) {
+			return false;
+		}
+
+		@Override
+		public void unregisterAll(Object owner) {
+		}
+
+		@Override
+		public void registerFor(int entityId, EventListener listener) {
+		}
+
+		@Override
+		public boolean unregisterFor(int entityId, EventListener listener) {
+			return false;
+		}
+
+		@Override
+		public void unregisterAllFor(int entityId) {
+		}
+
+		@Override
+		public boolean hasCarryOver() {
+			return false;
+		}
+
 		@Override
 		public void dispatch(Event event) {
 		}
@@ -0,0 +1,87 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import com.artemis.utils.reflect.ClassReflection;
+import com.artemis.utils.reflect.ReflectionException;
+import net.mostlyoriginal.api.MyBenchmark;
+import net.mostlyoriginal.api.event.common.CoalescingEvent;
+import net.mostlyoriginal.api.event.common.EventDispatchStrategy;
+import net.mostlyoriginal.api.event.common.EventListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark a frame of keyed events, many per key, with and without coalescing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+public class CoalescingDispatcherBenchmark extends MyBenchmark {
+
+	public static final int EVENTS_PER_FRAME = 10000;
+	/** Listeners on the event, every delivered event walks the full chain. */
+	public static final int LISTENERS = 10;
+
+	@Param({"100", "1000"})
+	int keys;
+
+	public static class DamageEvent implements CoalescingEvent<DamageEvent> {
+		int entityId;
+		int damage;
+
+		@Override
+		public int getCoalescingKey() {
+			return entityId;
+		}
+
+		@Override
+		public void merge(DamageEvent later) {
+			damage += later.damage;
+		}
+	}
+
+	public static class Listener {
+		int total;
+		public void handle(DamageEvent event) { total += event.damage; }
+	}
+
+	private EventDispatchStrategy polling;
+	private EventDispatchStrategy coalescing;
+	private DamageEvent[] events;
+
+	@Setup
+	public void setup() throws ReflectionException {
+		polling = new PollingEventDispatcher();
+		coalescing = new CoalescingEventDispatcher();
+		for (int i = 0; i < LISTENERS; i++) {
+			final Listener listener = new Listener();
+			final EventListener eventListener = new EventListener(listener, ClassReflection.getMethod(Listener.class, "handle", DamageEvent.class));
+			polling.register(eventListener);
+			coalescing.register(eventListener);
+		}
+		events = new DamageEvent[EVENTS_PER_FRAME];
+		for (int i = 0; i < EVENTS_PER_FRAME; i++) {
+			events[i] = new DamageEvent();
+			events[i].entityId = i % keys;
+		}
+	}
+
+	private void frame(EventDispatchStrategy dispatcher) {
+		for (int i = 0; i < EVENTS_PER_FRAME; i++) {
+			events[i].damage = 1;
+			dispatcher.dispatch(events[i]);
+		}
+		dispatcher.process();
+	}
+
+	@Benchmark
+	public void polling_frame_benchmark() {
+		frame(polling);
+	}
+
+	@Benchmark
+	public void coalescing_frame_benchmark() {
+		frame(coalescing);
+	}
+}
@@ -218,7 +218,7 @@ public abstract class DispatcherBenchmark extends MyBenchmark {
 	public void setup()
 	{
 		WorldConfiguration config = new WorldConfiguration();
-		em = new EventSystem(instanceDispatcher(), new SubscribeAnnotationFinder());
+		em = new EventSystem(instanceDispatcher(), listenerFinder());
 		config.setSystem(em);
 		activeEventHandlers = new ActiveEventHandlers();
 		config.setSystem(activeEventHandlers);
@@ -229,6 +229,10 @@ public abstract class DispatcherBenchmark extends MyBenchmark {
 
 	protected abstract EventDispatchStrategy  instanceDispatcher();
 
+	protected ListenerFinderStrategy listenerFinder() {
+		return new SubscribeAnnotationFinder();
+	}
+
 	@Benchmark
 	public void eventWithNoHierarchyAndOneHandler()
 	{
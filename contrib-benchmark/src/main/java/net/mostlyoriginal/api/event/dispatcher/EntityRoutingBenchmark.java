@@ -0,0 +1,88 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import net.mostlyoriginal.api.MyBenchmark;
+import net.mostlyoriginal.api.event.common.EntityEvent;
+import net.mostlyoriginal.api.event.common.Event;
+import net.mostlyoriginal.api.event.common.EventListener;
+import net.mostlyoriginal.api.event.common.ListenerInvoker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark a hit event with one handler per entity, filtering on entity id
+ * in every handler versus entity scoped listeners.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+public class EntityRoutingBenchmark extends MyBenchmark {
+
+	@Param({"10", "100", "1000"})
+	int entities;
+
+	public static class HitEvent implements EntityEvent {
+		int entityId;
+
+		@Override
+		public int getEntityId() {
+			return entityId;
+		}
+	}
+
+	public static class Handler {
+		final int entityId;
+		int hits;
+
+		public Handler(int entityId) {
+			this.entityId = entityId;
+		}
+
+		public void filtered(HitEvent event) {
+			if (event.entityId == entityId) hits++;
+		}
+
+		public void targeted(HitEvent event) {
+			hits++;
+		}
+	}
+
+	private FastEventDispatcher filtering;
+	private FastEventDispatcher routing;
+	private final HitEvent event = new HitEvent();
+
+	@Setup
+	public void setup() {
+		filtering = new FastEventDispatcher();
+		routing = new FastEventDispatcher();
+		for (int i = 0; i < entities; i++) {
+			final Handler handler = new Handler(i);
+			// direct calls, like generated listener tables, so only routing is measured.
+			filtering.register(new EventListener(handler, HitEvent.class, 0, false, new ListenerInvoker() {
+				@Override
+				public void invoke(Event event) {
+					handler.filtered((HitEvent) event);
+				}
+			}));
+			routing.registerFor(i, new EventListener(handler, HitEvent.class, 0, false, new ListenerInvoker() {
+				@Override
+				public void invoke(Event event) {
+					handler.targeted((HitEvent) event);
+				}
+			}));
+		}
+	}
+
+	@Benchmark
+	public void filtering_benchmark() {
+		event.entityId = (event.entityId + 1) % entities;
+		filtering.dispatch(event);
+	}
+
+	@Benchmark
+	public void routing_benchmark() {
+		event.entityId = (event.entityId + 1) % entities;
+		routing.dispatch(event);
+	}
+}
@@ -0,0 +1,33 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import net.mostlyoriginal.api.event.common.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test fast dispatcher with reflective listener calls.
+ *
+ * Baseline for {@link FastDispatcherBenchmark}, which binds listeners to method handles.
+ */
+public class FastDispatcherReflectionBenchmark extends DispatcherBenchmark {
+
+	protected EventDispatchStrategy instanceDispatcher() {
+		return new FastEventDispatcher();
+	}
+
+	@Override
+	protected ListenerFinderStrategy listenerFinder() {
+		return new SubscribeAnnotationFinder() {
+			@Override
+			public List<EventListener> resolve(Object o) {
+				final List<EventListener> listeners = new ArrayList<>();
+				for (EventListener listener : super.resolve(o)) {
+					listeners.add(new EventListener(listener.getObject(), listener.getMethod(), listener.getPriority(),
+							listener.isSkipCancelledEvents(), new ReflectionListenerInvoker(listener.getObject(), listener.getMethod())));
+				}
+				return listeners;
+			}
+		};
+	}
+}
@@ -0,0 +1,87 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import com.artemis.utils.reflect.ClassReflection;
+import com.artemis.utils.reflect.ReflectionException;
+import net.mostlyoriginal.api.MyBenchmark;
+import net.mostlyoriginal.api.event.common.Event;
+import net.mostlyoriginal.api.event.common.EventListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark dispatch cost of FastEventDispatcher under listener register/unregister churn.
+ *
+ * Each invocation first registers and unregisters churn listeners (untimed), on the same event
+ * hierarchy that is dispatched, then dispatches a batch. Dispatch throughput should not depend on churn.
+ * register_unregister_benchmark measures the cost of churn itself.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+public class ListenerChurnBenchmark extends MyBenchmark {
+
+	public static final int DISPATCH_BATCH_SIZE = 1000;
+	/** Listeners that stay registered. */
+	public static final int STABLE_LISTENERS = 10;
+
+	@Param({"0", "10", "100"})
+	int churn;
+
+	public static class ChurnEvent implements Event {}
+	public static class ExtendedChurnEvent extends ChurnEvent {}
+	public static class UnrelatedEvent implements Event {}
+
+	public static class Listener {
+		int count;
+		public void handle(ChurnEvent event) { count++; }
+		public void unrelated(UnrelatedEvent event) { count++; }
+	}
+
+	private FastEventDispatcher dispatcher;
+	private EventListener[] churnListeners;
+	private final ExtendedChurnEvent event = new ExtendedChurnEvent();
+
+	@Setup(Level.Trial)
+	public void setup() throws ReflectionException {
+		dispatcher = new FastEventDispatcher();
+		for (int i = 0; i < STABLE_LISTENERS; i++) {
+			final Listener listener = new Listener();
+			dispatcher.register(new EventListener(listener, ClassReflection.getMethod(Listener.class, "handle", ChurnEvent.class)));
+			dispatcher.register(new EventListener(listener, ClassReflection.getMethod(Listener.class, "unrelated", UnrelatedEvent.class)));
+		}
+		churnListeners = new EventListener[Math.max(churn, 1)];
+		for (int i = 0; i < churnListeners.length; i++) {
+			churnListeners[i] = new EventListener(new Listener(), ClassReflection.getMethod(Listener.class, "handle", ChurnEvent.class));
+		}
+		// make sure dispatched types are known, so churn has to patch them.
+		dispatcher.dispatch(event);
+		dispatcher.dispatch(new UnrelatedEvent());
+	}
+
+	@Setup(Level.Invocation)
+	public void doChurn() {
+		for (int i = 0; i < churn; i++) {
+			dispatcher.register(churnListeners[i]);
+		}
+		for (int i = 0; i < churn; i++) {
+			dispatcher.unregisterAll(churnListeners[i].getObject());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DISPATCH_BATCH_SIZE)
+	public void dispatch_after_churn_benchmark() {
+		for (int i = 0; i < DISPATCH_BATCH_SIZE; i++) {
+			dispatcher.dispatch(event);
+		}
+	}
+
+	@Benchmark
+	public boolean register_unregister_benchmark() {
+		final EventListener listener = churnListeners[0];
+		dispatcher.register(listener);
+		return dispatcher.unregister(listener);
+	}
+}
@@ -0,0 +1,13 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import net.mostlyoriginal.api.event.common.EventDispatchStrategy;
+
+/**
+ * Test ring buffer pooled dispatcher.
+ */
+public class RingBufferPooledDispatcherBenchmark extends ClassBasedDispatcherBenchmark {
+
+	protected EventDispatchStrategy instanceDispatcher() {
+		return new RingBufferPooledEventDispatcher();
+	}
+}
@@ -24,4 +24,23 @@ public class BagUtils {
 	    }
     }
 
+	/**
+	 * Remove first occurrence of element, keeping order of the remaining elements.
+	 *
+	 * Unlike {@link Bag#remove(Object)}, which moves the last element into the gap.
+	 *
+	 * @return <code>true</code> if bag contained element.
+	 */
+	public static boolean removeOrdered(Bag bag, Object element) {
+		final Object[] data = bag.getData();
+		for (int i = 0, s = bag.size(); i < s; i++) {
+			if (data[i] == element) {
+				System.arraycopy(data, i + 1, data, i, s - i - 1);
+				bag.removeLast();
+				return true;
+			}
+		}
+		return false;
+	}
+
 }
@@ -0,0 +1,514 @@
+package net.mostlyoriginal.api.utils;
+
+import com.artemis.utils.IntBag;
+
+import java.util.Arrays;
+
+/**
+ * Quad tree for optimized queries in 2d space, flat storage variant of {@link QuadTree}
+ *
+ * Entity bounds are kept in parallel primitive arrays indexed by slot and nodes in an int indexed
+ * node table, buckets are intrusive lists of slots. Queries walk a preallocated stack and
+ * produce no garbage.
+ *
+ * Not thread safe, queries share the traversal stack.
+ */
+public class FlatQuadTree implements SpatialIndex {
+	public final static int OUTSIDE = QuadTree.OUTSIDE;
+	public final static int SW = QuadTree.SW;
+	public final static int SE = QuadTree.SE;
+	public final static int NW = QuadTree.NW;
+	public final static int NE = QuadTree.NE;
+
+	private final static int NONE = -1;
+	private final static int ROOT = 0;
+
+	protected final int maxInBucket;
+	protected final int maxDepth;
+
+	// node table, children of a node are allocated as 4 consecutive nodes
+	protected float[] nodeX;
+	protected float[] nodeY;
+	protected float[] nodeWidth;
+	protected float[] nodeHeight;
+	protected int[] nodeDepth;
+	protected int[] nodeParent;
+	/**
+	 * Index of first child, {@link #NONE} for leaf nodes
+	 */
+	protected int[] nodeChildren;
+	/**
+	 * First slot in the bucket of the node, {@link #NONE} if empty
+	 */
+	protected int[] nodeHead;
+	protected int[] nodeBucketSize;
+	protected int nodeCount;
+
+	// entity slots
+	/**
+	 * Maps entity id to slot, -1 if entity is not in the tree
+	 */
+	protected int[] idToSlot;
+	protected int[] eids;
+	protected float[] x;
+	protected float[] y;
+	protected float[] width;
+	protected float[] height;
+	protected int[] slotNode;
+	protected int[] slotPrev;
+	protected int[] slotNext;
+	protected int size;
+
+	private final int[] stack;
+
+	/**
+	 * Specify max tree bounds, uses {@link QuadTree#MAX_IN_BUCKET} and {@link QuadTree#MAX_DEPTH}
+	 */
+	public FlatQuadTree (float x, float y, float width, float height) {
+		this(x, y, width, height, QuadTree.MAX_IN_BUCKET, QuadTree.MAX_DEPTH);
+	}
+
+	/**
+	 * Specify max tree bounds, max count of entities in a node before it is split and max count of splits
+	 */
+	public FlatQuadTree (float x, float y, float width, float height, int maxInBucket, int maxDepth) {
+		this.maxInBucket = maxInBucket;
+		this.maxDepth = maxDepth;
+		// every visited node pushes at most 4 children, only one of which is expanded further
+		stack = new int[3 * (maxDepth + 1) + 4];
+
+		int nodeCapacity = 1 + 4 * 16;
+		nodeX = new float[nodeCapacity];
+		nodeY = new float[nodeCapacity];
+		nodeWidth = new float[nodeCapacity];
+		nodeHeight = new float[nodeCapacity];
+		nodeDepth = new int[nodeCapacity];
+		nodeParent = new int[nodeCapacity];
+		nodeChildren = new int[nodeCapacity];
+		nodeHead = new int[nodeCapacity];
+		nodeBucketSize = new int[nodeCapacity];
+
+		int slotCapacity = 64;
+		idToSlot = new int[slotCapacity];
+		Arrays.fill(idToSlot, -1);
+		eids = new int[slotCapacity];
+		this.x = new float[slotCapacity];
+		this.y = new float[slotCapacity];
+		this.width = new float[slotCapacity];
+		this.height = new float[slotCapacity];
+		slotNode = new int[slotCapacity];
+		slotPrev = new int[slotCapacity];
+		slotNext = new int[slotCapacity];
+
+		initNode(ROOT, 0, x, y, width, height, NONE);
+		nodeCount = 1;
+	}
+
+	private void initNode (int node, int depth, float x, float y, float width, float height, int parent) {
+		nodeX[node] = x;
+		nodeY[node] = y;
+		nodeWidth[node] = width;
+		nodeHeight[node] = height;
+		nodeDepth[node] = depth;
+		nodeParent[node] = parent;
+		nodeChildren[node] = NONE;
+		nodeHead[node] = NONE;
+		nodeBucketSize[node] = 0;
+	}
+
+	private int indexOf (int node, float x, float y, float width, float height) {
+		float midX = nodeX[node] + nodeWidth[node] / 2;
+		float midY = nodeY[node] + nodeHeight[node] / 2;
+		boolean top = y > midY;
+		boolean bottom = y < midY && y + height < midY;
+		if (x < midX && x + width < midX) {
+			if (top) {
+				return NW;
+			} else if (bottom) {
+				return SW;
+			}
+		} else if (x > midX) {
+			if (top) {
+				return NE;
+			} else if (bottom) {
+				return SE;
+			}
+		}
+		return OUTSIDE;
+	}
+
+	/**
+	 * Inserts given entity id to tree with given bounds
+	 */
+	public void insert (int eid, float x, float y, float width, float height) {
+		if (slotOf(eid) != -1) {
+			update(eid, x, y, width, height);
+			return;
+		}
+		int slot = obtainSlot(eid);
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.width[slot] = width;
+		this.height[slot] = height;
+		insert(ROOT, slot);
+	}
+
+	protected void insert (int node, int slot) {
+		float x = this.x[slot];
+		float y = this.y[slot];
+		float width = this.width[slot];
+		float height = this.height[slot];
+		while (nodeChildren[node] != NONE) {
+			int index = indexOf(node, x, y, width, height);
+			if (index == OUTSIDE) {
+				break;
+			}
+			node = nodeChildren[node] + index;
+		}
+		link(node, slot);
+
+		if (nodeBucketSize[node] > maxInBucket && nodeDepth[node] < maxDepth) {
+			if (nodeChildren[node] == NONE) {
+				split(node);
+			}
+			int next = nodeHead[node];
+			while (next != NONE) {
+				int current = next;
+				next = slotNext[current];
+				int index = indexOf(node, this.x[current], this.y[current], this.width[current], this.height[current]);
+				if (index != OUTSIDE) {
+					unlink(current);
+					insert(nodeChildren[node] + index, current);
+				}
+			}
+		}
+	}
+
+	private void split (int node) {
+		ensureNodeCapacity(nodeCount + 4);
+		int first = nodeCount;
+		nodeCount += 4;
+		int depth = nodeDepth[node] + 1;
+		float x = nodeX[node];
+		float y = nodeY[node];
+		float halfWidth = nodeWidth[node] / 2;
+		float halfHeight = nodeHeight[node] / 2;
+		initNode(first + SW, depth, x, y, halfWidth, halfHeight, node);
+		initNode(first + SE, depth, x + halfWidth, y, halfWidth, halfHeight, node);
+		initNode(first + NW, depth, x, y + halfHeight, halfWidth, halfHeight, node);
+		initNode(first + NE, depth, x + halfWidth, y + halfHeight, halfWidth, halfHeight, node);
+		nodeChildren[node] = first;
+	}
+
+	/**
+	 * Returns entity ids of entities that are inside nodes that contain given point
+	 *
+	 * Returned entities must be filtered further as these results are not exact
+	 */
+	public IntBag get (IntBag fill, float x, float y) {
+		int node = ROOT;
+		if (!nodeContains(node, x, y)) {
+			return fill;
+		}
+		while (node != NONE) {
+			for (int slot = nodeHead[node]; slot != NONE; slot = slotNext[slot]) {
+				fill.add(eids[slot]);
+			}
+			node = childAt(node, x, y);
+		}
+		return fill;
+	}
+
+	/**
+	 * Returns entity ids of entities that bounds contain given point
+	 */
+	public IntBag getExact (IntBag fill, float x, float y) {
+		int node = ROOT;
+		if (!nodeContains(node, x, y)) {
+			return fill;
+		}
+		final float[] xs = this.x;
+		final float[] ys = this.y;
+		final float[] widths = this.width;
+		final float[] heights = this.height;
+		while (node != NONE) {
+			for (int slot = nodeHead[node]; slot != NONE; slot = slotNext[slot]) {
+				if (xs[slot] <= x && xs[slot] + widths[slot] >= x && ys[slot] <= y && ys[slot] + heights[slot] >= y) {
+					fill.add(eids[slot]);
+				}
+			}
+			node = childAt(node, x, y);
+		}
+		return fill;
+	}
+
+	private int childAt (int node, float x, float y) {
+		if (nodeChildren[node] == NONE) {
+			return NONE;
+		}
+		int index = indexOf(node, x, y, 0, 0);
+		return index != OUTSIDE ? nodeChildren[node] + index : NONE;
+	}
+
+	/**
+	 * Returns entity ids of entities that are inside nodes that overlap given bounds
+	 *
+	 * Returned entities must be filtered further as these results are not exact
+	 */
+	public IntBag get (IntBag fill, float x, float y, float width, float height) {
+		int top = 0;
+		stack[top++] = ROOT;
+		while (top > 0) {
+			int node = stack[--top];
+			if (!nodeOverlaps(node, x, y, width, height)) {
+				continue;
+			}
+			top = pushChildren(node, top, x, y, width, height);
+			for (int slot = nodeHead[node]; slot != NONE; slot = slotNext[slot]) {
+				fill.add(eids[slot]);
+			}
+		}
+		return fill;
+	}
+
+	/**
+	 * Returns entity ids of entities that overlap given bounds
+	 */
+	public IntBag getExact (IntBag fill, float x, float y, float width, float height) {
+		final float[] xs = this.x;
+		final float[] ys = this.y;
+		final float[] widths = this.width;
+		final float[] heights = this.height;
+		int top = 0;
+		stack[top++] = ROOT;
+		while (top > 0) {
+			int node = stack[--top];
+			if (!nodeOverlaps(node, x, y, width, height)) {
+				continue;
+			}
+			top = pushChildren(node, top, x, y, width, height);
+			for (int slot = nodeHead[node]; slot != NONE; slot = slotNext[slot]) {
+				if (xs[slot] < x + width && xs[slot] + widths[slot] > x && ys[slot] < y + height && ys[slot] + heights[slot] > y) {
+					fill.add(eids[slot]);
+				}
+			}
+		}
+		return fill;
+	}
+
+	private int pushChildren (int node, int top, float x, float y, float width, float height) {
+		int children = nodeChildren[node];
+		if (children != NONE) {
+			int index = indexOf(node, x, y, width, height);
+			if (index != OUTSIDE) {
+				stack[top++] = children + index;
+			} else {
+				// if test bounds don't fully fit inside a node, we need to check them all
+				stack[top++] = children + SW;
+				stack[top++] = children + SE;
+				stack[top++] = children + NW;
+				stack[top++] = children + NE;
+			}
+		}
+		return top;
+	}
+
+	/**
+	 * Update position for this id with new one
+	 */
+	public void update (int id, float x, float y, float width, float height) {
+		int slot = slotOf(id);
+		if (slot == -1) {
+			insert(id, x, y, width, height);
+			return;
+		}
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.width[slot] = width;
+		this.height[slot] = height;
+
+		int node = slotNode[slot];
+		unlink(slot);
+		while (nodeParent[node] != NONE && !nodeContains(node, x, y, width, height)) {
+			node = nodeParent[node];
+		}
+		insert(node, slot);
+	}
+
+	/**
+	 * Remove this id from the tree
+	 */
+	public void remove (int id) {
+		int slot = slotOf(id);
+		if (slot == -1)
+			return;
+		unlink(slot);
+		freeSlot(slot);
+	}
+
+	/**
+	 * @return true if given entity id is stored in this tree
+	 */
+	public boolean contains (int id) {
+		return slotOf(id) != -1;
+	}
+
+	/**
+	 * @return count of entity ids stored in this tree
+	 */
+	public int size () {
+		return size;
+	}
+
+	/**
+	 * @return count of nodes in this tree, including the root
+	 */
+	public int getNodeCount () {
+		return nodeCount;
+	}
+
+	/**
+	 * Reset the tree by removing all nodes and stored ids
+	 */
+	public void reset () {
+		for (int slot = 0; slot < size; slot++) {
+			idToSlot[eids[slot]] = -1;
+		}
+		size = 0;
+		initNode(ROOT, 0, nodeX[ROOT], nodeY[ROOT], nodeWidth[ROOT], nodeHeight[ROOT], NONE);
+		nodeCount = 1;
+	}
+
+	/**
+	 * Dispose of the tree by removing all nodes and stored ids
+	 */
+	public void dispose () {
+		reset();
+	}
+
+	private boolean nodeContains (int node, float x, float y) {
+		return nodeX[node] <= x && nodeX[node] + nodeWidth[node] >= x && nodeY[node] <= y && nodeY[node] + nodeHeight[node] >= y;
+	}
+
+	private boolean nodeOverlaps (int node, float x, float y, float width, float height) {
+		return nodeX[node] < x + width && nodeX[node] + nodeWidth[node] > x && nodeY[node] < y + height && nodeY[node] + nodeHeight[node] > y;
+	}
+
+	private boolean nodeContains (int node, float x, float y, float width, float height) {
+		float nx = nodeX[node];
+		float ny = nodeY[node];
+		float nx2 = nx + nodeWidth[node];
+		float ny2 = ny + nodeHeight[node];
+		float x2 = x + width;
+		float y2 = y + height;
+		return x > nx && x < nx2 && x2 > nx && x2 < nx2 && y > ny && y < ny2 && y2 > ny && y2 < ny2;
+	}
+
+	private void link (int node, int slot) {
+		int head = nodeHead[node];
+		slotNode[slot] = node;
+		slotPrev[slot] = NONE;
+		slotNext[slot] = head;
+		if (head != NONE) {
+			slotPrev[head] = slot;
+		}
+		nodeHead[node] = slot;
+		nodeBucketSize[node]++;
+	}
+
+	private void unlink (int slot) {
+		int node = slotNode[slot];
+		int prev = slotPrev[slot];
+		int next = slotNext[slot];
+		if (prev != NONE) {
+			slotNext[prev] = next;
+		} else {
+			nodeHead[node] = next;
+		}
+		if (next != NONE) {
+			slotPrev[next] = prev;
+		}
+		slotNode[slot] = NONE;
+		nodeBucketSize[node]--;
+	}
+
+	private int slotOf (int id) {
+		return id >= 0 && id < idToSlot.length ? idToSlot[id] : -1;
+	}
+
+	private int obtainSlot (int eid) {
+		if (eid >= idToSlot.length) {
+			int oldLength = idToSlot.length;
+			idToSlot = Arrays.copyOf(idToSlot, Math.max(oldLength * 2, eid + 1));
+			Arrays.fill(idToSlot, oldLength, idToSlot.length, -1);
+		}
+		if (size == eids.length) {
+			int capacity = size * 2;
+			eids = Arrays.copyOf(eids, capacity);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			width = Arrays.copyOf(width, capacity);
+			height = Arrays.copyOf(height, capacity);
+			slotNode = Arrays.copyOf(slotNode, capacity);
+			slotPrev = Arrays.copyOf(slotPrev, capacity);
+			slotNext = Arrays.copyOf(slotNext, capacity);
+		}
+		int slot = size++;
+		eids[slot] = eid;
+		idToSlot[eid] = slot;
+		return slot;
+	}
+
+	/**
+	 * Free given unlinked slot, last slot is moved into it to keep slots densely packed
+	 */
+	private void freeSlot (int slot) {
+		idToSlot[eids[slot]] = -1;
+		int last = --size;
+		if (slot == last) {
+			return;
+		}
+		int eid = eids[last];
+		eids[slot] = eid;
+		x[slot] = x[last];
+		y[slot] = y[last];
+		width[slot] = width[last];
+		height[slot] = height[last];
+		int node = slotNode[last];
+		int prev = slotPrev[last];
+		int next = slotNext[last];
+		slotNode[slot] = node;
+		slotPrev[slot] = prev;
+		slotNext[slot] = next;
+		if (prev != NONE) {
+			slotNext[prev] = slot;
+		} else {
+			nodeHead[node] = slot;
+		}
+		if (next != NONE) {
+			slotPrev[next] = slot;
+		}
+		idToSlot[eid] = slot;
+	}
+
+	private void ensureNodeCapacity (int capacity) {
+		if (capacity <= nodeX.length) {
+			return;
+		}
+		capacity = Math.max(capacity, nodeX.length * 2);
+		nodeX = Arrays.copyOf(nodeX, capacity);
+		nodeY = Arrays.copyOf(nodeY, capacity);
+		nodeWidth = Arrays.copyOf(nodeWidth, capacity);
+		nodeHeight = Arrays.copyOf(nodeHeight, capacity);
+		nodeDepth = Arrays.copyOf(nodeDepth, capacity);
+		nodeParent = Arrays.copyOf(nodeParent, capacity);
+		nodeChildren = Arrays.copyOf(nodeChildren, capacity);
+		nodeHead = Arrays.copyOf(nodeHead, capacity);
+		nodeBucketSize = Arrays.copyOf(nodeBucketSize, capacity);
+	}
+
+	@Override public String toString () {
+		return "FlatQuadTree{" +
+			"size=" + size + ", nodes=" + nodeCount + "}";
+	}
+}
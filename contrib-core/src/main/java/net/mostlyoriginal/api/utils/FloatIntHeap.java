@@ -0,0 +1,94 @@
+package net.mostlyoriginal.api.utils;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of int values ordered by float keys, backed by primitive arrays.
+ *
+ * Reusable scratch queue for best-first spatial queries, grows as needed and produces no garbage once warmed up.
+ */
+class FloatIntHeap {
+	private float[] keys;
+	private int[] values;
+	private int size;
+
+	FloatIntHeap () {
+		this(64);
+	}
+
+	FloatIntHeap (int capacity) {
+		keys = new float[capacity];
+		values = new int[capacity];
+	}
+
+	void add (float key, int value) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		int index = size++;
+		// sift up
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (keys[parent] <= key) {
+				break;
+			}
+			keys[index] = keys[parent];
+			values[index] = values[parent];
+			index = parent;
+		}
+		keys[index] = key;
+		values[index] = value;
+	}
+
+	/**
+	 * @return key of the smallest entry, heap must not be empty
+	 */
+	float peekKey () {
+		return keys[0];
+	}
+
+	/**
+	 * Remove the smallest entry
+	 *
+	 * @return value of removed entry, heap must not be empty
+	 */
+	int pop () {
+		int top = values[0];
+		int last = --size;
+		if (last > 0) {
+			float key = keys[last];
+			int value = values[last];
+			// sift down
+			int index = 0;
+			int half = last >>> 1;
+			while (index < half) {
+				int child = 2 * index + 1;
+				if (child + 1 < last && keys[child + 1] < keys[child]) {
+					child++;
+				}
+				if (key <= keys[child]) {
+					break;
+				}
+				keys[index] = keys[child];
+				values[index] = values[child];
+				index = child;
+			}
+			keys[index] = key;
+			values[index] = value;
+		}
+		return top;
+	}
+
+	boolean isEmpty () {
+		return size == 0;
+	}
+
+	int size () {
+		return size;
+	}
+
+	void clear () {
+		size = 0;
+	}
+}
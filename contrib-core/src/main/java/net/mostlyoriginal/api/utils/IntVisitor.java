@@ -0,0 +1,11 @@
+package net.mostlyoriginal.api.utils;
+
+/**
+ * Receives entity ids from spatial queries as they are found.
+ */
+public interface IntVisitor {
+	/**
+	 * @return true to continue with further ids, false to stop the query
+	 */
+	boolean visit (int eid);
+}
@@ -4,30 +4,30 @@ import com.artemis.utils.Bag;
 import com.artemis.utils.IntBag;
 import net.mostlyoriginal.api.utils.pooling.ObjectPool;
 import net.mostlyoriginal.api.utils.pooling.Poolable;
-import net.mostlyoriginal.api.utils.pooling.Pools;
+import net.mostlyoriginal.api.utils.pooling.ReflectionPool;
+
+import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  * Quad tree for optimized queries in 2d space
  *
  * @author Piotr-J
  */
-public class QuadTree implements Poolable {
+public class QuadTree implements Poolable, SpatialIndex {
 	/**
-	 * Max count of containers in a tree before it is split
+	 * Default max count of containers in a tree before it is split, used by trees created after it is changed
 	 *
-	 * Should be tweaked for best performance
+	 * Should be tweaked for best performance, see {@link #getStats(QuadTreeStats)}
 	 */
 	public static int MAX_IN_BUCKET = 16;
 	/**
-	 * Max count of splits, tree start at depth = 0
+	 * Default max count of splits, tree start at depth = 0, used by trees created after it is changed
 	 *
-	 * Should be tweaked for best performance
+	 * Should be tweaked for best performance, see {@link #getStats(QuadTreeStats)}
 	 */
 	public static int MAX_DEPTH = 8;
 
-	private static ObjectPool<QuadTree> qtPool = Pools.getPool(QuadTree.class);
-	private static ObjectPool<Container> cPool = Pools.getPool(Container.class);
-	private static Bag<Container> idToContainer = new Bag<>();
 
 	public final static int OUTSIDE = -1;
 	public final static int SW = 0;
@@ -37,14 +37,74 @@ public class QuadTree implements Poolable {
 	protected int depth;
 	protected Bag<Container> containers;
 	protected Container bounds;
+	/**
+	 * Bounds that containers in this tree must fit in, same as {@link #bounds} unless the tree is loose
+	 */
+	protected Container looseBounds;
 	protected QuadTree[] nodes;
 	protected QuadTree parent;
+	/**
+	 * Count of containers in this tree and all of its nodes
+	 */
+	protected int count;
+	/**
+	 * Root of this tree, owns the pools and id index shared by all of its nodes
+	 */
+	protected QuadTree root;
+
+	// root only, each tree has its own so multiple trees don't share state
+	private ObjectPool<QuadTree> qtPool;
+	private ObjectPool<Container> cPool;
+	private float looseness;
+	private int maxInBucket;
+	private int maxDepth;
+	/**
+	 * Query counters, see {@link #getStats(QuadTreeStats)}
+	 */
+	private long queryCount;
+	private long nodesVisited;
+	/**
+	 * Maps entity id to slot in {@link #slots}, -1 if entity is not in the tree
+	 */
+	private int[] idToSlot;
+	/**
+	 * Densely packed containers of all entities in the tree
+	 */
+	private Container[] slots;
+	private int size;
+	private int nodeCount = 1;
+	/**
+	 * Best-first query scratch space, values are container slots or inverted indices into {@link #queuedNodes}
+	 */
+	private FloatIntHeap queue;
+	private QuadTree[] queuedNodes;
+	private int queuedNodeCount;
+	/**
+	 * Morton order scratch space used by {@link #rebuild(int[], float[], float[], float[], float[], int)}
+	 */
+	private long[] mortonOrder;
+	private int[] mortonCodes;
+	/**
+	 * Duplicate id check scratch space, ids seen by the current rebuild are marked with {@link #rebuildStamp}
+	 */
+	private int[] rebuildStamps;
+	private int rebuildStamp;
+
+	/**
+	 * Bits per axis of morton codes, tree is built from codes up to this depth
+	 *
+	 * Codes have to stay positive when shifted into the high half of a long for sorting
+	 */
+	private final static int MORTON_BITS = 15;
 
 	/**
 	 * Public constructor for {@link ObjectPool} use only
 	 */
 	public QuadTree () {
-		this(0, 0, 0, 0);
+		bounds = new Container();
+		looseBounds = new Container();
+		containers = new Bag<>(MAX_IN_BUCKET);
+		nodes = new QuadTree[4];
 	}
 
 	/**
@@ -53,20 +113,86 @@ public class QuadTree implements Poolable {
 	 * Specify max tree bounds
 	 */
 	public QuadTree (float x, float y, float width, float height) {
-		bounds = new Container();
-		containers = new Bag<>(MAX_IN_BUCKET);
-		nodes = new QuadTree[4];
-		init(0, x, y, width, height, null);
+		this(x, y, width, height, 0);
+	}
+
+	/**
+	 * Public constructor for initial loose {@link QuadTree}
+	 *
+	 * Specify max tree bounds and looseness factor, each node accepts containers that have their centre
+	 * inside of it and fit in its bounds scaled by looseness, around the same centre. Containers that
+	 * straddle node edges sink down the tree instead of piling up in parents, at cost of nodes overlapping.
+	 *
+	 * Looseness of 0 creates a regular tree, otherwise it must be at least 1, 2 is a common choice
+	 */
+	public QuadTree (float x, float y, float width, float height, float looseness) {
+		this(x, y, width, height, looseness, MAX_IN_BUCKET, MAX_DEPTH);
 	}
 
-	protected QuadTree init (int depth, float x, float y, float width, float height, QuadTree parent) {
+	/**
+	 * Public constructor for initial {@link QuadTree} with its own limits
+	 *
+	 * Specify max tree bounds, looseness factor, max count of containers in a tree before it is split and max count of splits
+	 */
+	public QuadTree (float x, float y, float width, float height, float looseness, int maxInBucket, int maxDepth) {
+		this();
+		Preconditions.checkArgument(looseness == 0 || looseness >= 1, "Looseness must be 0 or at least 1");
+		Preconditions.checkArgument(maxInBucket > 0, "Max in bucket must be positive");
+		Preconditions.checkArgument(maxDepth >= 0, "Max depth must not be negative");
+		this.looseness = looseness;
+		this.maxInBucket = maxInBucket;
+		this.maxDepth = maxDepth;
+		qtPool = new ReflectionPool<>(QuadTree.class);
+		cPool = new ReflectionPool<>(Container.class);
+		idToSlot = new int[64];
+		Arrays.fill(idToSlot, -1);
+		slots = new Container[64];
+		queue = new FloatIntHeap();
+		queuedNodes = new QuadTree[64];
+		init(0, x, y, width, height, null, this);
+	}
+
+	protected QuadTree init (int depth, float x, float y, float width, float height, QuadTree parent, QuadTree root) {
 		this.depth = depth;
 		bounds.set(x, y, width, height);
 		this.parent = parent;
+		this.root = root;
+		float looseness = root.looseness;
+		if (looseness > 0) {
+			float growX = width * (looseness - 1) / 2;
+			float growY = height * (looseness - 1) / 2;
+			looseBounds.set(x - growX, y - growY, width * looseness, height * looseness);
+		} else {
+			looseBounds.set(x, y, width, height);
+		}
 		return this;
 	}
 
+	/**
+	 * @return true if this tree was created with a looseness factor
+	 */
+	public boolean isLoose () {
+		return root.looseness > 0;
+	}
+
+	/**
+	 * @return max count of containers in a tree of this tree before it is split
+	 */
+	public int getMaxInBucket () {
+		return root.maxInBucket;
+	}
+
+	/**
+	 * @return max count of splits in this tree
+	 */
+	public int getMaxDepth () {
+		return root.maxDepth;
+	}
+
 	private int indexOf (float x, float y, float width, float height) {
+		if (root.looseness > 0) {
+			return looseIndexOf(x, y, width, height);
+		}
 		float midX = bounds.x + bounds.width / 2;
 		float midY = bounds.y + bounds.height / 2;
 		boolean top = y > midY;
@@ -87,14 +213,46 @@ public class QuadTree implements Poolable {
 		return OUTSIDE;
 	}
 
+	/**
+	 * Picks node by the centre of given bounds, bounds must fit in loose bounds of that node
+	 */
+	private int looseIndexOf (float x, float y, float width, float height) {
+		float midX = bounds.x + bounds.width / 2;
+		float midY = bounds.y + bounds.height / 2;
+		float centerX = x + width / 2;
+		float centerY = y + height / 2;
+		int index;
+		if (centerY > midY) {
+			index = centerX > midX ? NE : NW;
+		} else {
+			index = centerX > midX ? SE : SW;
+		}
+		return nodes[index].looseBounds.contains(x, y, width, height) ? index : OUTSIDE;
+	}
+
+	/**
+	 * @return index of the only node that can hold containers overlapping given bounds, {@link #OUTSIDE} if all must be checked
+	 */
+	private int queryIndexOf (float x, float y, float width, float height) {
+		// loose nodes overlap, so there is no single node to check
+		return root.looseness > 0 ? OUTSIDE : indexOf(x, y, width, height);
+	}
+
 	/**
 	 * Inserts given entity id to tree with given bounds
 	 */
 	public void insert (int eid, float x, float y, float width, float height) {
-		insert(cPool.obtain().set(eid, x, y, width, height));
+		if (root.slotOf(eid) != -1) {
+			update(eid, x, y, width, height);
+			return;
+		}
+		Container c = root.cPool.obtain().set(eid, x, y, width, height);
+		root.track(c);
+		root.insert(c);
 	}
 
 	protected void insert (Container c) {
+		count++;
 		if (nodes[0] != null) {
 			int index = indexOf(c.x, c.y, c.width, c.height);
 			if (index != OUTSIDE) {
@@ -103,17 +261,11 @@ public class QuadTree implements Poolable {
 			}
 		}
 		c.parent = this;
-		idToContainer.set(c.eid, c);
 		containers.add(c);
 
-		if (containers.size() > MAX_IN_BUCKET && depth < MAX_DEPTH) {
+		if (containers.size() > root.maxInBucket && depth < root.maxDepth) {
 			if (nodes[0] == null) {
-				float halfWidth = bounds.width / 2;
-				float halfHeight = bounds.height / 2;
-				nodes[SW] = qtPool.obtain().init(depth + 1, bounds.x, bounds.y, halfWidth, halfHeight, this);
-				nodes[SE] = qtPool.obtain().init(depth + 1, bounds.x + halfWidth, bounds.y, halfWidth, halfHeight, this);
-				nodes[NW] = qtPool.obtain().init(depth + 1, bounds.x, bounds.y + halfHeight, halfWidth, halfHeight, this);
-				nodes[NE] = qtPool.obtain().init(depth + 1, bounds.x + halfWidth, bounds.y + halfHeight, halfWidth, halfHeight, this);
+				split();
 			}
 
 			Object[] items = containers.getData();
@@ -128,17 +280,192 @@ public class QuadTree implements Poolable {
 		}
 	}
 
+	private void split () {
+		float halfWidth = bounds.width / 2;
+		float halfHeight = bounds.height / 2;
+		ObjectPool<QuadTree> qtPool = root.qtPool;
+		root.nodeCount += 4;
+		nodes[SW] = qtPool.obtain().init(depth + 1, bounds.x, bounds.y, halfWidth, halfHeight, this, root);
+		nodes[SE] = qtPool.obtain().init(depth + 1, bounds.x + halfWidth, bounds.y, halfWidth, halfHeight, this, root);
+		nodes[NW] = qtPool.obtain().init(depth + 1, bounds.x, bounds.y + halfHeight, halfWidth, halfHeight, this, root);
+		nodes[NE] = qtPool.obtain().init(depth + 1, bounds.x + halfWidth, bounds.y + halfHeight, halfWidth, halfHeight, this, root);
+	}
+
+	/**
+	 * Replace contents of the tree with given entities in one pass
+	 *
+	 * Entities are sorted by morton code of their centre, so entities of each node end up in a contiguous range,
+	 * and the tree is built from these ranges without per entity walks or bucket re-splitting.
+	 * Nodes and containers are reused from the pools. Much cheaper than calling {@link #update(int, float, float, float, float)}
+	 * for each entity when most of them move every frame.
+	 *
+	 * Ids must be unique and not negative. Ids are validated before the tree is cleared,
+	 * so invalid input leaves the tree unchanged.
+	 *
+	 * @param count number of entities to take from given arrays
+	 */
+	public void rebuild (int[] ids, float[] x, float[] y, float[] width, float[] height, int count) {
+		if (root != this) {
+			root.rebuild(ids, x, y, width, height, count);
+			return;
+		}
+		checkRebuildIds(ids, count);
+		reset();
+		if (mortonOrder == null || mortonOrder.length < count) {
+			mortonOrder = new long[Math.max(count, 64)];
+			mortonCodes = new int[mortonOrder.length];
+		}
+		long[] order = mortonOrder;
+		float scaleX = bounds.width > 0 ? (1 << MORTON_BITS) / bounds.width : 0;
+		float scaleY = bounds.height > 0 ? (1 << MORTON_BITS) / bounds.height : 0;
+		for (int i = 0; i < count; i++) {
+			int cellX = quantize((x[i] + width[i] / 2 - bounds.x) * scaleX);
+			int cellY = quantize((y[i] + height[i] / 2 - bounds.y) * scaleY);
+			order[i] = ((long)morton(cellX, cellY) << 32) | i;
+		}
+		Arrays.sort(order, 0, count);
+
+		// slots follow morton order, each node takes a contiguous range of them
+		for (int i = 0; i < count; i++) {
+			int index = (int)order[i];
+			Container c = cPool.obtain().set(ids[index], x[index], y[index], width[index], height[index]);
+			track(c);
+			mortonCodes[c.slot] = (int)(order[i] >>> 32);
+		}
+		build(0, count);
+	}
+
+	/**
+	 * Check ids are unique and not negative, without touching the tree
+	 */
+	private void checkRebuildIds (int[] ids, int count) {
+		if (rebuildStamps == null) {
+			rebuildStamps = new int[idToSlot.length];
+		}
+		if (++rebuildStamp == 0) {
+			// stamp wrapped around, old marks could match again
+			Arrays.fill(rebuildStamps, 0);
+			rebuildStamp = 1;
+		}
+		int[] stamps = rebuildStamps;
+		int stamp = rebuildStamp;
+		for (int i = 0; i < count; i++) {
+			int id = ids[i];
+			if (id < 0) {
+				throw new IllegalArgumentException("Negative id " + id);
+			}
+			if (id >= stamps.length) {
+				stamps = rebuildStamps = Arrays.copyOf(stamps, Math.max(stamps.length * 2, id + 1));
+			}
+			if (stamps[id] == stamp) {
+				throw new IllegalArgumentException("Duplicate id " + id);
+			}
+			stamps[id] = stamp;
+		}
+	}
+
+	/**
+	 * Build this node from containers in given range of morton ordered slots
+	 */
+	private void build (int from, int to) {
+		Container[] slots = root.slots;
+		if (to - from <= root.maxInBucket || depth >= root.maxDepth) {
+			count = to - from;
+			for (int i = from; i < to; i++) {
+				Container c = slots[i];
+				c.parent = this;
+				containers.add(c);
+			}
+			return;
+		}
+		if (depth >= MORTON_BITS) {
+			// out of morton precision, fall back to regular inserts
+			for (int i = from; i < to; i++) {
+				insert(slots[i]);
+			}
+			return;
+		}
+		count = to - from;
+		split();
+		int[] codes = root.mortonCodes;
+		int shift = 2 * (MORTON_BITS - 1 - depth);
+		int start = from;
+		for (int index = SW; index <= NE; index++) {
+			// containers that don't fit the node stay here, rest are moved to front of the range, keeping their order
+			int fitting = start;
+			int end = start;
+			while (end < to && ((codes[end] >>> shift) & 3) == index) {
+				Container c = slots[end];
+				if (indexOf(c.x, c.y, c.width, c.height) == index) {
+					root.swapSlots(fitting++, end);
+				} else {
+					c.parent = this;
+					containers.add(c);
+				}
+				end++;
+			}
+			nodes[index].build(start, fitting);
+			start = end;
+		}
+	}
+
+	private void swapSlots (int a, int b) {
+		if (a == b) {
+			return;
+		}
+		Container ca = slots[a];
+		Container cb = slots[b];
+		slots[a] = cb;
+		slots[b] = ca;
+		ca.slot = b;
+		cb.slot = a;
+		idToSlot[ca.eid] = b;
+		idToSlot[cb.eid] = a;
+		int code = mortonCodes[a];
+		mortonCodes[a] = mortonCodes[b];
+		mortonCodes[b] = code;
+	}
+
+	private static int quantize (float value) {
+		int cell = (int)value;
+		return cell < 0 ? 0 : Math.min(cell, (1 << MORTON_BITS) - 1);
+	}
+
+	/**
+	 * Interleave bits of given cell coordinates, x in even bits so quadrant order matches {@link #SW}, {@link #SE}, {@link #NW}, {@link #NE}
+	 */
+	private static int morton (int x, int y) {
+		return spread(x) | (spread(y) << 1);
+	}
+
+	private static int spread (int value) {
+		value &= 0x0000ffff;
+		value = (value | (value << 8)) & 0x00ff00ff;
+		value = (value | (value << 4)) & 0x0f0f0f0f;
+		value = (value | (value << 2)) & 0x33333333;
+		value = (value | (value << 1)) & 0x55555555;
+		return value;
+	}
+
 	/**
 	 * Returns entity ids of entities that are inside {@link QuadTree}s that contain given point
 	 *
 	 * Returned entities must be filtered further as these results are not exact
 	 */
 	public IntBag get (IntBag fill, float x, float y) {
-		if (bounds.contains(x, y)) {
+		countVisit();
+		if (looseBounds.contains(x, y)) {
 			if (nodes[0] != null) {
-				int index = indexOf(x, y, 0, 0);
-				if (index != OUTSIDE) {
-					nodes[index].get(fill, x, y, 0, 0);
+				if (root.looseness > 0) {
+					// loose nodes overlap, point may be inside more than one of them
+					for (int i = 0; i < nodes.length; i++) {
+						nodes[i].get(fill, x, y);
+					}
+				} else {
+					int index = indexOf(x, y, 0, 0);
+					if (index != OUTSIDE) {
+						nodes[index].get(fill, x, y, 0, 0);
+					}
 				}
 			}
 			for (int i = 0; i < containers.size(); i++) {
@@ -152,11 +479,19 @@ public class QuadTree implements Poolable {
 	 * Returns entity ids of entities that bounds contain given point
 	 */
 	public IntBag getExact (IntBag fill, float x, float y) {
-		if (bounds.contains(x, y)) {
+		countVisit();
+		if (looseBounds.contains(x, y)) {
 			if (nodes[0] != null) {
-				int index = indexOf(x, y, 0, 0);
-				if (index != OUTSIDE) {
-					nodes[index].getExact(fill, x, y, 0, 0);
+				if (root.looseness > 0) {
+					// loose nodes overlap, point may be inside more than one of them
+					for (int i = 0; i < nodes.length; i++) {
+						nodes[i].getExact(fill, x, y);
+					}
+				} else {
+					int index = indexOf(x, y, 0, 0);
+					if (index != OUTSIDE) {
+						nodes[index].getExact(fill, x, y, 0, 0);
+					}
 				}
 			}
 			for (int i = 0; i < containers.size(); i++) {
@@ -175,9 +510,10 @@ public class QuadTree implements Poolable {
 	 * Returned entities must be filtered further as these results are not exact
 	 */
 	public IntBag get (IntBag fill, float x, float y, float width, float height) {
-		if (bounds.overlaps(x, y, width, height)) {
+		countVisit();
+		if (looseBounds.overlaps(x, y, width, height)) {
 			if (nodes[0] != null) {
-				int index = indexOf(x, y, width, height);
+				int index = queryIndexOf(x, y, width, height);
 				if (index != OUTSIDE) {
 					nodes[index].get(fill, x, y, width, height);
 				} else {
@@ -199,9 +535,10 @@ public class QuadTree implements Poolable {
 	 * Returns entity ids of entities that overlap given bounds
 	 */
 	public IntBag getExact (IntBag fill, float x, float y, float width, float height) {
-		if (bounds.overlaps(x, y, width, height)) {
+		countVisit();
+		if (looseBounds.overlaps(x, y, width, height)) {
 			if (nodes[0] != null) {
-				int index = indexOf(x, y, width, height);
+				int index = queryIndexOf(x, y, width, height);
 				if (index != OUTSIDE) {
 					nodes[index].getExact(fill, x, y, width, height);
 				} else {
@@ -221,31 +558,575 @@ public class QuadTree implements Poolable {
 		return fill;
 	}
 
+	/**
+	 * Passes ids of entities that bounds contain given point to given visitor, as they are found
+	 *
+	 * @return false if visitor stopped the query
+	 */
+	public boolean query (float x, float y, IntVisitor visitor) {
+		return query(x, y, null, visitor);
+	}
+
+	/**
+	 * Passes ids of entities that bounds contain given point to given visitor, as they are found
+	 *
+	 * Ids already set in seen are skipped and visited ids are set, reuse it to skip duplicates over several queries
+	 *
+	 * @param seen may be null
+	 * @return false if visitor stopped the query
+	 */
+	public boolean query (float x, float y, BitSet seen, IntVisitor visitor) {
+		countVisit();
+		if (looseBounds.contains(x, y)) {
+			for (int i = 0, n = containers.size(); i < n; i++) {
+				Container c = containers.get(i);
+				if (c.contains(x, y) && !visit(c.eid, seen, visitor)) {
+					return false;
+				}
+			}
+			if (nodes[0] != null) {
+				if (root.looseness > 0) {
+					for (int i = 0; i < nodes.length; i++) {
+						if (!nodes[i].query(x, y, seen, visitor)) {
+							return false;
+						}
+					}
+				} else {
+					int index = indexOf(x, y, 0, 0);
+					if (index != OUTSIDE) {
+						return nodes[index].query(x, y, seen, visitor);
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Passes ids of entities that overlap given bounds to given visitor, as they are found
+	 *
+	 * @return false if visitor stopped the query
+	 */
+	public boolean query (float x, float y, float width, float height, IntVisitor visitor) {
+		return query(x, y, width, height, null, visitor);
+	}
+
+	/**
+	 * Passes ids of entities that overlap given bounds to given visitor, as they are found
+	 *
+	 * Ids already set in seen are skipped and visited ids are set, reuse it to skip duplicates over several queries
+	 *
+	 * @param seen may be null
+	 * @return false if visitor stopped the query
+	 */
+	public boolean query (float x, float y, float width, float height, BitSet seen, IntVisitor visitor) {
+		countVisit();
+		if (looseBounds.overlaps(x, y, width, height)) {
+			for (int i = 0, n = containers.size(); i < n; i++) {
+				Container c = containers.get(i);
+				if (c.overlaps(x, y, width, height) && !visit(c.eid, seen, visitor)) {
+					return false;
+				}
+			}
+			if (nodes[0] != null) {
+				int index = queryIndexOf(x, y, width, height);
+				if (index != OUTSIDE) {
+					return nodes[index].query(x, y, width, height, seen, visitor);
+				}
+				// if test bounds don't fully fit inside a node, we need to check them all
+				for (int i = 0; i < nodes.length; i++) {
+					if (!nodes[i].query(x, y, width, height, seen, visitor)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Count visit of this tree by a query, queries start at the root
+	 */
+	private void countVisit () {
+		QuadTree root = this.root;
+		if (root == this) {
+			root.queryCount++;
+		}
+		root.nodesVisited++;
+	}
+
+	private static boolean visit (int eid, BitSet seen, IntVisitor visitor) {
+		if (seen != null) {
+			if (seen.get(eid)) {
+				return true;
+			}
+			seen.set(eid);
+		}
+		return visitor.visit(eid);
+	}
+
+	/**
+	 * Returns ids of up to k entities closest to given point, closest first
+	 *
+	 * Distance is measured to entity bounds, entities that contain the point are at distance 0.
+	 * Nodes are visited best-first, so only nodes that may hold one of the results are expanded.
+	 *
+	 * Not thread safe, uses scratch space of the tree
+	 */
+	public IntBag nearest (float x, float y, int k, IntBag fill) {
+		return nearest(x, y, k, Float.POSITIVE_INFINITY, fill);
+	}
+
+	/**
+	 * Returns ids of entities which bounds are within given radius of given point, closest first
+	 *
+	 * Not thread safe, uses scratch space of the tree
+	 */
+	public IntBag withinRadius (float x, float y, float radius, IntBag fill) {
+		return nearest(x, y, Integer.MAX_VALUE, radius * radius, fill);
+	}
+
+	private IntBag nearest (float x, float y, int k, float maxDistance2, IntBag fill) {
+		QuadTree root = this.root;
+		FloatIntHeap queue = root.queue;
+		queue.clear();
+		// root may hold entities outside of its bounds, so it is always expanded
+		root.enqueue(this, 0);
+		int found = 0;
+		while (found < k && !queue.isEmpty()) {
+			int value = queue.pop();
+			if (value >= 0) {
+				fill.add(root.slots[value].eid);
+				found++;
+			} else {
+				root.queuedNodes[~value].enqueueContents(x, y, maxDistance2);
+			}
+		}
+		root.clearQueue();
+		return fill;
+	}
+
+	private void enqueueContents (float x, float y, float maxDistance2) {
+		FloatIntHeap queue = root.queue;
+		for (int i = 0, n = containers.size(); i < n; i++) {
+			Container c = containers.get(i);
+			float distance2 = c.distance2(x, y);
+			if (distance2 <= maxDistance2) {
+				queue.add(distance2, c.slot);
+			}
+		}
+		if (nodes[0] != null) {
+			for (int i = 0; i < nodes.length; i++) {
+				float distance2 = nodes[i].looseBounds.distance2(x, y);
+				if (distance2 <= maxDistance2) {
+					root.enqueue(nodes[i], distance2);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reports entities which bounds are crossed by given segment to given callback, in order along the segment
+	 *
+	 * Only nodes crossed by the segment are visited, nearest first, so returning false from the callback
+	 * skips the rest of the tree.
+	 *
+	 * Not thread safe, uses scratch space of the tree
+	 */
+	public void raycast (float x0, float y0, float x1, float y1, RaycastCallback callback) {
+		cast(x0, y0, x1, y1, callback);
+	}
+
+	/**
+	 * Returns id of the first entity which bounds are crossed by given segment, -1 if there is none
+	 *
+	 * Not thread safe, uses scratch space of the tree
+	 */
+	public int firstHit (float x0, float y0, float x1, float y1) {
+		return cast(x0, y0, x1, y1, null);
+	}
+
+	/**
+	 * @param callback null to stop at the first hit
+	 * @return id of the last reported entity, -1 if there was none
+	 */
+	private int cast (float x0, float y0, float x1, float y1, RaycastCallback callback) {
+		QuadTree root = this.root;
+		FloatIntHeap queue = root.queue;
+		queue.clear();
+		float dx = x1 - x0;
+		float dy = y1 - y0;
+		// root may hold entities outside of its bounds, so it is always expanded
+		root.enqueue(this, 0);
+		int hit = -1;
+		while (!queue.isEmpty()) {
+			float fraction = queue.peekKey();
+			int value = queue.pop();
+			if (value >= 0) {
+				hit = root.slots[value].eid;
+				if (callback == null || !callback.hit(hit, fraction)) {
+					break;
+				}
+			} else {
+				root.queuedNodes[~value].enqueueCrossed(x0, y0, dx, dy);
+			}
+		}
+		root.clearQueue();
+		return hit;
+	}
+
+	private void enqueueCrossed (float x0, float y0, float dx, float dy) {
+		FloatIntHeap queue = root.queue;
+		for (int i = 0, n = containers.size(); i < n; i++) {
+			Container c = containers.get(i);
+			float fraction = c.intersect(x0, y0, dx, dy);
+			if (fraction >= 0) {
+				queue.add(fraction, c.slot);
+			}
+		}
+		if (nodes[0] != null) {
+			for (int i = 0; i < nodes.length; i++) {
+				float fraction = nodes[i].looseBounds.intersect(x0, y0, dx, dy);
+				if (fraction >= 0) {
+					root.enqueue(nodes[i], fraction);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reports every pair of entities with overlapping bounds to given callback, exactly once
+	 *
+	 * Each container is tested against the rest of its node and against nodes below it that it overlaps.
+	 * Loose trees additionally test sibling nodes with overlapping loose bounds against each other.
+	 * No intermediate collections are created.
+	 */
+	public void forEachOverlappingPair (PairCallback callback) {
+		for (int i = 0, n = containers.size(); i < n; i++) {
+			Container a = containers.get(i);
+			for (int j = i + 1; j < n; j++) {
+				Container b = containers.get(j);
+				if (a.overlaps(b)) {
+					callback.overlap(a.eid, b.eid);
+				}
+			}
+			if (nodes[0] != null) {
+				for (int j = 0; j < nodes.length; j++) {
+					nodes[j].forEachOverlapping(a, callback);
+				}
+			}
+		}
+		if (nodes[0] != null) {
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i].forEachOverlappingPair(callback);
+			}
+			if (root.looseness > 0) {
+				for (int i = 0; i < nodes.length; i++) {
+					for (int j = i + 1; j < nodes.length; j++) {
+						nodes[i].forEachOverlappingPair(nodes[j], callback);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Report pairs of overlapping entities between this tree and other one, trees must not be nested
+	 */
+	private void forEachOverlappingPair (QuadTree other, PairCallback callback) {
+		if (!looseBounds.overlaps(other.looseBounds)) {
+			return;
+		}
+		for (int i = 0, n = containers.size(); i < n; i++) {
+			other.forEachOverlapping(containers.get(i), callback);
+		}
+		if (nodes[0] != null) {
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i].forEachOverlappingPair(other, callback);
+			}
+		}
+	}
+
+	/**
+	 * Report pairs of given container and entities in this tree that overlap it
+	 */
+	private void forEachOverlapping (Container a, PairCallback callback) {
+		if (!looseBounds.overlaps(a)) {
+			return;
+		}
+		for (int i = 0, n = containers.size(); i < n; i++) {
+			Container b = containers.get(i);
+			if (a.overlaps(b)) {
+				callback.overlap(a.eid, b.eid);
+			}
+		}
+		if (nodes[0] != null) {
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i].forEachOverlapping(a, callback);
+			}
+		}
+	}
+
+	/**
+	 * Add given node to the query queue, root only
+	 */
+	private void enqueue (QuadTree node, float key) {
+		if (queuedNodeCount == queuedNodes.length) {
+			queuedNodes = Arrays.copyOf(queuedNodes, queuedNodeCount * 2);
+		}
+		queuedNodes[queuedNodeCount] = node;
+		queue.add(key, ~queuedNodeCount);
+		queuedNodeCount++;
+	}
+
+	private void clearQueue () {
+		queue.clear();
+		Arrays.fill(queuedNodes, 0, queuedNodeCount, null);
+		queuedNodeCount = 0;
+	}
+
+	/**
+	 * Create an immutable, compacted copy of this tree that can be queried from any number of threads
+	 * concurrently while this tree keeps changing, see {@link QuadTreeSnapshot}
+	 */
+	public QuadTreeSnapshot snapshot () {
+		// breadth first, so children of each node end up consecutive, empty branches are skipped
+		QuadTree[] order = new QuadTree[root.nodeCount];
+		int[] firstChild = new int[root.nodeCount];
+		int[] childCount = new int[root.nodeCount];
+		order[0] = this;
+		int nodeCount = 1;
+		for (int i = 0; i < nodeCount; i++) {
+			QuadTree node = order[i];
+			firstChild[i] = nodeCount;
+			if (node.nodes[0] != null) {
+				for (int j = 0; j < node.nodes.length; j++) {
+					if (node.nodes[j].count > 0) {
+						order[nodeCount++] = node.nodes[j];
+					}
+				}
+			}
+			childCount[i] = nodeCount - firstChild[i];
+		}
+
+		float[] nodeX = new float[nodeCount];
+		float[] nodeY = new float[nodeCount];
+		float[] nodeWidth = new float[nodeCount];
+		float[] nodeHeight = new float[nodeCount];
+		int[] firstEntry = new int[nodeCount + 1];
+		int[] eids = new int[count];
+		float[] x = new float[count];
+		float[] y = new float[count];
+		float[] width = new float[count];
+		float[] height = new float[count];
+		int entry = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			QuadTree node = order[i];
+			Container bounds = node.looseBounds;
+			nodeX[i] = bounds.x;
+			nodeY[i] = bounds.y;
+			nodeWidth[i] = bounds.width;
+			nodeHeight[i] = bounds.height;
+			firstEntry[i] = entry;
+			Bag<Container> containers = node.containers;
+			for (int j = 0; j < containers.size(); j++) {
+				Container c = containers.get(j);
+				eids[entry] = c.eid;
+				x[entry] = c.x;
+				y[entry] = c.y;
+				width[entry] = c.width;
+				height[entry] = c.height;
+				entry++;
+			}
+		}
+		firstEntry[nodeCount] = entry;
+		return new QuadTreeSnapshot(nodeX, nodeY, nodeWidth, nodeHeight, Arrays.copyOf(firstChild, nodeCount),
+			Arrays.copyOf(childCount, nodeCount), firstEntry, nodeCount, eids, x, y, width, height);
+	}
+
 	/**
 	 * Update position for this id with new one
 	 */
 	public void update (int id, float x, float y, float width, float height) {
-		Container c = idToContainer.get(id);
+		int slot = root.slotOf(id);
+		if (slot == -1) {
+			insert(id, x, y, width, height);
+			return;
+		}
+		Container c = root.slots[slot];
 		c.set(id, x, y, width, height);
 
-		QuadTree qTree = c.parent;
+		QuadTree removedFrom = c.parent;
+		QuadTree qTree = removedFrom;
 		qTree.containers.remove(c);
-		while (qTree.parent != null && !qTree.bounds.contains(c)) {
+		qTree.count--;
+		while (qTree.parent != null && !qTree.looseBounds.contains(c)) {
 			qTree = qTree.parent;
+			qTree.count--;
 		}
 		qTree.insert(c);
+		removedFrom.collapseUp();
 	}
 
 	/**
 	 * Remove this id from the tree
 	 */
 	public void remove (int id) {
-		Container c = idToContainer.get(id);
-		if (c == null)
+		int slot = root.slotOf(id);
+		if (slot == -1)
 			return;
-		if (c.parent != null) {
-			c.parent.containers.remove(c);
+		Container c = root.slots[slot];
+		QuadTree qTree = c.parent;
+		if (qTree != null) {
+			qTree.containers.remove(c);
+			for (QuadTree node = qTree; node != null; node = node.parent) {
+				node.count--;
+			}
+		}
+		root.release(c);
+		if (qTree != null) {
+			qTree.collapseUp();
+		}
+	}
+
+	/**
+	 * Collapse the highest tree on the path from this one to the root that holds at most half of max in bucket containers
+	 *
+	 * Threshold is kept below the split one, so trees don't keep splitting and collapsing as entities move around it
+	 */
+	private void collapseUp () {
+		int threshold = root.maxInBucket / 2;
+		QuadTree collapse = null;
+		// counts only grow towards the root, so first tree that holds too many ends the search
+		for (QuadTree node = this; node != null && node.count <= threshold; node = node.parent) {
+			if (node.nodes[0] != null) {
+				collapse = node;
+			}
+		}
+		if (collapse != null) {
+			collapse.collapse();
+		}
+	}
+
+	/**
+	 * Move containers of all nodes into this tree and return nodes to the pool
+	 */
+	private void collapse () {
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i].moveContainersTo(this);
+			root.qtPool.free(nodes[i]);
+			root.nodeCount--;
+			nodes[i] = null;
+		}
+	}
+
+	private void moveContainersTo (QuadTree target) {
+		for (int i = containers.size() - 1; i >= 0; i--) {
+			Container c = containers.remove(i);
+			c.parent = target;
+			target.containers.add(c);
+		}
+		if (nodes[0] != null) {
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i].moveContainersTo(target);
+			}
+		}
+		count = 0;
+	}
+
+	/**
+	 * @return count of nodes in this tree, including the root
+	 */
+	public int getNodeCount () {
+		return root.nodeCount;
+	}
+
+	/**
+	 * Fill given stats with current shape of this tree and query counters since the last {@link #resetQueryStats()}
+	 *
+	 * Only get, getExact and query calls are counted. Walks the whole tree, meant to be called once per frame at most.
+	 */
+	public QuadTreeStats getStats (QuadTreeStats stats) {
+		stats.reset(root.maxInBucket + 2);
+		collectStats(stats);
+		stats.size = root.size;
+		stats.queries = root.queryCount;
+		stats.nodesVisited = root.nodesVisited;
+		return stats;
+	}
+
+	private void collectStats (QuadTreeStats stats) {
+		stats.nodeCount++;
+		stats.maxDepth = Math.max(stats.maxDepth, depth);
+		int size = containers.size();
+		stats.bucketHistogram[Math.min(size, stats.bucketHistogram.length - 1)]++;
+		if (nodes[0] != null) {
+			stats.nonLeafEntries += size;
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i].collectStats(stats);
+			}
+		} else {
+			stats.leafCount++;
+		}
+	}
+
+	/**
+	 * Reset query counters reported by {@link #getStats(QuadTreeStats)}
+	 */
+	public void resetQueryStats () {
+		root.queryCount = 0;
+		root.nodesVisited = 0;
+	}
+
+	/**
+	 * @return true if given entity id is stored in this tree
+	 */
+	public boolean contains (int id) {
+		return root.slotOf(id) != -1;
+	}
+
+	/**
+	 * @return count of entity ids stored in this tree
+	 */
+	public int size () {
+		return root.size;
+	}
+
+	private int slotOf (int id) {
+		return id >= 0 && id < idToSlot.length ? idToSlot[id] : -1;
+	}
+
+	/**
+	 * Assign a slot to given container and map its id to it, root only
+	 */
+	private void track (Container c) {
+		if (c.eid >= idToSlot.length) {
+			int oldLength = idToSlot.length;
+			idToSlot = Arrays.copyOf(idToSlot, Math.max(oldLength * 2, c.eid + 1));
+			Arrays.fill(idToSlot, oldLength, idToSlot.length, -1);
+		}
+		if (size == slots.length) {
+			slots = Arrays.copyOf(slots, size * 2);
 		}
+		c.slot = size;
+		slots[size] = c;
+		idToSlot[c.eid] = size;
+		size++;
+	}
+
+	/**
+	 * Remove given container from the index and return it to the pool, root only
+	 *
+	 * Last slot is moved into the freed one to keep slots densely packed
+	 */
+	private void release (Container c) {
+		int slot = c.slot;
+		Container last = slots[--size];
+		slots[slot] = last;
+		last.slot = slot;
+		idToSlot[last.eid] = slot;
+		slots[size] = null;
+		idToSlot[c.eid] = -1;
 		cPool.free(c);
 	}
 
@@ -254,14 +1135,16 @@ public class QuadTree implements Poolable {
 	 */
 	@Override public void reset () {
 		for (int i = containers.size() - 1; i >= 0; i--) {
-			cPool.free(containers.remove(i));
+			root.release(containers.remove(i));
 		}
 		for (int i = 0; i < nodes.length; i++) {
 			if (nodes[i] != null) {
-				qtPool.free(nodes[i]);
+				root.qtPool.free(nodes[i]);
+				root.nodeCount--;
 				nodes[i] = null;
 			}
 		}
+		count = 0;
 	}
 
 	/**
@@ -285,11 +1168,37 @@ public class QuadTree implements Poolable {
 		return bounds;
 	}
 
+	/**
+	 * @return {@link Container} that represents loose bounds of this tree, same as {@link #getBounds()} if tree is not loose
+	 */
+	public Container getLooseBounds () {
+		return looseBounds;
+	}
+
 	@Override public String toString () {
 		return "QuadTree{" +
 			"depth=" + depth + "}";
 	}
 
+	/**
+	 * Receives entities crossed by a segment, see {@link #raycast(float, float, float, float, RaycastCallback)}
+	 */
+	public interface RaycastCallback {
+		/**
+		 * @param eid id of crossed entity
+		 * @param fraction fraction along the segment where it enters entity bounds, 0 at the start, 1 at the end
+		 * @return true to continue with further entities, false to stop
+		 */
+		boolean hit (int eid, float fraction);
+	}
+
+	/**
+	 * Receives pairs of overlapping entities, see {@link #forEachOverlappingPair(PairCallback)}
+	 */
+	public interface PairCallback {
+		void overlap (int eidA, int eidB);
+	}
+
 	/**
 	 * Simple container for entity ids and their bounds
 	 */
@@ -300,6 +1209,7 @@ public class QuadTree implements Poolable {
 		private float width;
 		private float height;
 		private QuadTree parent;
+		private int slot = -1;
 
 		public Container () {}
 
@@ -342,6 +1252,48 @@ public class QuadTree implements Poolable {
 			return contains(c.x, c.y, c.width, c.height);
 		}
 
+		public boolean overlaps (Container c) {
+			return overlaps(c.x, c.y, c.width, c.height);
+		}
+
+		/**
+		 * @return fraction along given segment where it enters this container, 0 if it starts inside, -1 if segment misses it
+		 */
+		public float intersect (float x0, float y0, float dx, float dy) {
+			float near = 0;
+			float far = 1;
+			if (dx == 0) {
+				if (x0 < x || x0 > x + width) {
+					return -1;
+				}
+			} else {
+				float t1 = (x - x0) / dx;
+				float t2 = (x + width - x0) / dx;
+				near = Math.max(near, Math.min(t1, t2));
+				far = Math.min(far, Math.max(t1, t2));
+			}
+			if (dy == 0) {
+				if (y0 < y || y0 > y + height) {
+					return -1;
+				}
+			} else {
+				float t1 = (y - y0) / dy;
+				float t2 = (y + height - y0) / dy;
+				near = Math.max(near, Math.min(t1, t2));
+				far = Math.min(far, Math.max(t1, t2));
+			}
+			return near <= far ? near : -1;
+		}
+
+		/**
+		 * @return squared distance from given point to closest point of this container, 0 if point is inside
+		 */
+		public float distance2 (float x, float y) {
+			float dx = Math.max(Math.max(this.x - x, x - (this.x + width)), 0);
+			float dy = Math.max(Math.max(this.y - y, y - (this.y + height)), 0);
+			return dx * dx + dy * dy;
+		}
+
 		@Override public void reset () {
 			eid = -1;
 			x = 0;
@@ -349,6 +1301,7 @@ public class QuadTree implements Poolable {
 			width = 0;
 			height = 0;
 			parent = null;
+			slot = -1;
 		}
 
 		public float getX () {
@@ -366,5 +1319,9 @@ public class QuadTree implements Poolable {
 		public float getHeight () {
 			return height;
 		}
+
+		public int getEid () {
+			return eid;
+		}
 	}
 }
@@ -0,0 +1,205 @@
+package net.mostlyoriginal.api.utils;
+
+import com.artemis.utils.IntBag;
+
+/**
+ * Immutable copy of a {@link QuadTree} at the time of {@link QuadTree#snapshot()}
+ *
+ * Nodes are stored breadth first in primitive arrays, children of a node are consecutive and empty
+ * branches are left out. Entries of each node are stored consecutively as well.
+ *
+ * Snapshots are never modified after creation and queries keep no shared state, so any number of threads
+ * can query a snapshot concurrently without locking, while the tree it was taken from keeps changing.
+ * The snapshot must be published to other threads safely, for example through a volatile field or a queue.
+ */
+public class QuadTreeSnapshot {
+	// node table, node 0 is the root
+	private final float[] nodeX;
+	private final float[] nodeY;
+	private final float[] nodeWidth;
+	private final float[] nodeHeight;
+	private final int[] nodeFirstChild;
+	private final int[] nodeChildCount;
+	/**
+	 * Index of first entry of each node, entries of node n end where entries of node n + 1 start
+	 */
+	private final int[] nodeFirstEntry;
+	private final int nodeCount;
+
+	// entries
+	private final int[] eids;
+	private final float[] x;
+	private final float[] y;
+	private final float[] width;
+	private final float[] height;
+
+	QuadTreeSnapshot (float[] nodeX, float[] nodeY, float[] nodeWidth, float[] nodeHeight, int[] nodeFirstChild,
+		int[] nodeChildCount, int[] nodeFirstEntry, int nodeCount, int[] eids, float[] x, float[] y, float[] width,
+		float[] height) {
+		this.nodeX = nodeX;
+		this.nodeY = nodeY;
+		this.nodeWidth = nodeWidth;
+		this.nodeHeight = nodeHeight;
+		this.nodeFirstChild = nodeFirstChild;
+		this.nodeChildCount = nodeChildCount;
+		this.nodeFirstEntry = nodeFirstEntry;
+		this.nodeCount = nodeCount;
+		this.eids = eids;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Returns entity ids of entities that are inside nodes that contain given point
+	 *
+	 * Returned entities must be filtered further as these results are not exact
+	 */
+	public IntBag get (IntBag fill, float x, float y) {
+		get(0, fill, x, y, false);
+		return fill;
+	}
+
+	/**
+	 * Returns entity ids of entities that bounds contain given point
+	 */
+	public IntBag getExact (IntBag fill, float x, float y) {
+		get(0, fill, x, y, true);
+		return fill;
+	}
+
+	private void get (int node, IntBag fill, float x, float y, boolean exact) {
+		if (!nodeContains(node, x, y)) {
+			return;
+		}
+		for (int entry = nodeFirstEntry[node], end = nodeFirstEntry[node + 1]; entry < end; entry++) {
+			if (!exact || contains(entry, x, y)) {
+				fill.add(eids[entry]);
+			}
+		}
+		for (int child = nodeFirstChild[node], end = child + nodeChildCount[node]; child < end; child++) {
+			get(child, fill, x, y, exact);
+		}
+	}
+
+	/**
+	 * Returns entity ids of entities that are inside nodes that overlap given bounds
+	 *
+	 * Returned entities must be filtered further as these results are not exact
+	 */
+	public IntBag get (IntBag fill, float x, float y, float width, float height) {
+		get(0, fill, x, y, width, height, false);
+		return fill;
+	}
+
+	/**
+	 * Returns entity ids of entities that overlap given bounds
+	 */
+	public IntBag getExact (IntBag fill, float x, float y, float width, float height) {
+		get(0, fill, x, y, width, height, true);
+		return fill;
+	}
+
+	private void get (int node, IntBag fill, float x, float y, float width, float height, boolean exact) {
+		if (!nodeOverlaps(node, x, y, width, height)) {
+			return;
+		}
+		for (int entry = nodeFirstEntry[node], end = nodeFirstEntry[node + 1]; entry < end; entry++) {
+			if (!exact || overlaps(entry, x, y, width, height)) {
+				fill.add(eids[entry]);
+			}
+		}
+		for (int child = nodeFirstChild[node], end = child + nodeChildCount[node]; child < end; child++) {
+			get(child, fill, x, y, width, height, exact);
+		}
+	}
+
+	/**
+	 * Passes ids of entities that bounds contain given point to given visitor, as they are found
+	 *
+	 * @return false if visitor stopped the query
+	 */
+	public boolean query (float x, float y, IntVisitor visitor) {
+		return query(0, x, y, visitor);
+	}
+
+	private boolean query (int node, float x, float y, IntVisitor visitor) {
+		if (!nodeContains(node, x, y)) {
+			return true;
+		}
+		for (int entry = nodeFirstEntry[node], end = nodeFirstEntry[node + 1]; entry < end; entry++) {
+			if (contains(entry, x, y) && !visitor.visit(eids[entry])) {
+				return false;
+			}
+		}
+		for (int child = nodeFirstChild[node], end = child + nodeChildCount[node]; child < end; child++) {
+			if (!query(child, x, y, visitor)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Passes ids of entities that overlap given bounds to given visitor, as they are found
+	 *
+	 * @return false if visitor stopped the query
+	 */
+	public boolean query (float x, float y, float width, float height, IntVisitor visitor) {
+		return query(0, x, y, width, height, visitor);
+	}
+
+	private boolean query (int node, float x, float y, float width, float height, IntVisitor visitor) {
+		if (!nodeOverlaps(node, x, y, width, height)) {
+			return true;
+		}
+		for (int entry = nodeFirstEntry[node], end = nodeFirstEntry[node + 1]; entry < end; entry++) {
+			if (overlaps(entry, x, y, width, height) && !visitor.visit(eids[entry])) {
+				return false;
+			}
+		}
+		for (int child = nodeFirstChild[node], end = child + nodeChildCount[node]; child < end; child++) {
+			if (!query(child, x, y, width, height, visitor)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return count of entity ids stored in this snapshot
+	 */
+	public int size () {
+		return eids.length;
+	}
+
+	/**
+	 * @return count of nodes in this snapshot, including the root, empty branches are not included
+	 */
+	public int getNodeCount () {
+		return nodeCount;
+	}
+
+	private boolean nodeContains (int node, float x, float y) {
+		return nodeX[node] <= x && nodeX[node] + nodeWidth[node] >= x && nodeY[node] <= y && nodeY[node] + nodeHeight[node] >= y;
+	}
+
+	private boolean nodeOverlaps (int node, float x, float y, float width, float height) {
+		return nodeX[node] < x + width && nodeX[node] + nodeWidth[node] > x && nodeY[node] < y + height && nodeY[node] + nodeHeight[node] > y;
+	}
+
+	private boolean contains (int entry, float x, float y) {
+		return this.x[entry] <= x && this.x[entry] + width[entry] >= x && this.y[entry] <= y && this.y[entry] + height[entry] >= y;
+	}
+
+	private boolean overlaps (int entry, float x, float y, float width, float height) {
+		return this.x[entry] < x + width && this.x[entry] + this.width[entry] > x
+			&& this.y[entry] < y + height && this.y[entry] + this.height[entry] > y;
+	}
+
+	@Override public String toString () {
+		return "QuadTreeSnapshot{" +
+			"size=" + eids.length + ", nodes=" + nodeCount + "}";
+	}
+}
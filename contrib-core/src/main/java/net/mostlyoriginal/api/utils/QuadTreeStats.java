@@ -0,0 +1,75 @@
+package net.mostlyoriginal.api.utils;
+
+import java.util.Arrays;
+
+/**
+ * Shape and query statistics of a {@link QuadTree}, filled by {@link QuadTree#getStats(QuadTreeStats)}
+ *
+ * Reuse a single instance to export stats every frame without garbage. Many entries in non-leaf nodes or
+ * buckets over the max in bucket limit hint that the limits of the tree don't fit its contents.
+ */
+public class QuadTreeStats {
+	/**
+	 * Count of entity ids in the tree
+	 */
+	public int size;
+	/**
+	 * Count of nodes, including the root
+	 */
+	public int nodeCount;
+	public int leafCount;
+	/**
+	 * Deepest depth reached, root is at depth 0
+	 */
+	public int maxDepth;
+	/**
+	 * Count of entries that straddle child bounds and are kept in nodes that have children
+	 */
+	public int nonLeafEntries;
+	/**
+	 * Count of nodes by bucket size, last index counts all nodes over max in bucket limit
+	 */
+	public int[] bucketHistogram = new int[0];
+	/**
+	 * Count of queries since query stats were reset
+	 */
+	public long queries;
+	/**
+	 * Count of nodes visited by queries since query stats were reset
+	 */
+	public long nodesVisited;
+
+	/**
+	 * @return average count of nodes visited per query, 0 if there were no queries
+	 */
+	public float getAverageNodesVisited () {
+		return queries == 0 ? 0 : nodesVisited / (float)queries;
+	}
+
+	void reset (int histogramSize) {
+		size = 0;
+		nodeCount = 0;
+		leafCount = 0;
+		maxDepth = 0;
+		nonLeafEntries = 0;
+		if (bucketHistogram.length != histogramSize) {
+			bucketHistogram = new int[histogramSize];
+		} else {
+			Arrays.fill(bucketHistogram, 0);
+		}
+		queries = 0;
+		nodesVisited = 0;
+	}
+
+	@Override public String toString () {
+		return "QuadTreeStats{" +
+			"size=" + size +
+			", nodes=" + nodeCount +
+			", leaves=" + leafCount +
+			", maxDepth=" + maxDepth +
+			", nonLeafEntries=" + nonLeafEntries +
+			", buckets=" + Arrays.toString(bucketHistogram) +
+			", avgNodesVisited=" + getAverageNodesVisited() +
+			"}";
+	}
+}
@@ -0,0 +1,437 @@
+package net.mostlyoriginal.api.utils;
+
+import com.artemis.utils.IntBag;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid for optimized queries in 2d space, alternative to {@link QuadTree} for entities of similar size
+ *
+ * Space is divided into square cells of fixed size, cells are hashed into a fixed count of buckets so the
+ * grid is unbounded. Entities are referenced from every cell their bounds touch, so cell size should be
+ * about the size of a typical entity. All state is kept in primitive arrays and queries produce no garbage.
+ *
+ * Not thread safe, queries share the visited marks.
+ */
+public class SpatialHashGrid implements SpatialIndex {
+	public final static int DEFAULT_BUCKETS = 4096;
+
+	private final static int NONE = -1;
+
+	protected final float cellSize;
+	protected final float invCellSize;
+	protected final int[] bucketHead;
+	protected final int bucketMask;
+
+	// cell references, every entity has one per covered cell
+	protected int[] refSlot;
+	protected int[] refBucket;
+	protected int[] refPrev;
+	protected int[] refNext;
+	/**
+	 * Next reference of the same slot
+	 */
+	protected int[] refSibling;
+	protected int refCount;
+	protected int refFree = NONE;
+
+	// entity slots
+	/**
+	 * Maps entity id to slot, -1 if entity is not in the grid
+	 */
+	protected int[] idToSlot;
+	protected int[] eids;
+	protected float[] x;
+	protected float[] y;
+	protected float[] width;
+	protected float[] height;
+	// covered cell range, inclusive
+	protected int[] minCellX;
+	protected int[] minCellY;
+	protected int[] maxCellX;
+	protected int[] maxCellY;
+	protected int[] slotFirstRef;
+	/**
+	 * Query stamp of last query that visited the slot, used to skip entities found in more than one cell
+	 */
+	protected int[] slotMark;
+	protected int size;
+	private int stamp;
+
+	/**
+	 * Specify cell size, uses {@link #DEFAULT_BUCKETS} buckets
+	 */
+	public SpatialHashGrid (float cellSize) {
+		this(cellSize, DEFAULT_BUCKETS);
+	}
+
+	/**
+	 * Specify cell size and count of buckets, count is rounded up to a power of two
+	 */
+	public SpatialHashGrid (float cellSize, int buckets) {
+		Preconditions.checkArgument(cellSize > 0, "Cell size must be positive.");
+		Preconditions.checkArgument(buckets > 0, "Bucket count must be positive.");
+		this.cellSize = cellSize;
+		invCellSize = 1f / cellSize;
+		int capacity = Integer.highestOneBit(buckets);
+		if (capacity < buckets) {
+			capacity <<= 1;
+		}
+		bucketHead = new int[capacity];
+		Arrays.fill(bucketHead, NONE);
+		bucketMask = capacity - 1;
+
+		int refCapacity = 128;
+		refSlot = new int[refCapacity];
+		refBucket = new int[refCapacity];
+		refPrev = new int[refCapacity];
+		refNext = new int[refCapacity];
+		refSibling = new int[refCapacity];
+
+		int slotCapacity = 64;
+		idToSlot = new int[slotCapacity];
+		Arrays.fill(idToSlot, -1);
+		eids = new int[slotCapacity];
+		x = new float[slotCapacity];
+		y = new float[slotCapacity];
+		width = new float[slotCapacity];
+		height = new float[slotCapacity];
+		minCellX = new int[slotCapacity];
+		minCellY = new int[slotCapacity];
+		maxCellX = new int[slotCapacity];
+		maxCellY = new int[slotCapacity];
+		slotFirstRef = new int[slotCapacity];
+		slotMark = new int[slotCapacity];
+	}
+
+	private int cell (float value) {
+		return (int)Math.floor(value * invCellSize);
+	}
+
+	private int bucketOf (int cellX, int cellY) {
+		return ((cellX * 73856093) ^ (cellY * 19349663)) & bucketMask;
+	}
+
+	@Override
+	public void insert (int eid, float x, float y, float width, float height) {
+		if (slotOf(eid) != -1) {
+			update(eid, x, y, width, height);
+			return;
+		}
+		int slot = obtainSlot(eid);
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.width[slot] = width;
+		this.height[slot] = height;
+		link(slot, cell(x), cell(y), cell(x + width), cell(y + height));
+	}
+
+	@Override
+	public void update (int eid, float x, float y, float width, float height) {
+		int slot = slotOf(eid);
+		if (slot == -1) {
+			insert(eid, x, y, width, height);
+			return;
+		}
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.width[slot] = width;
+		this.height[slot] = height;
+		int minX = cell(x);
+		int minY = cell(y);
+		int maxX = cell(x + width);
+		int maxY = cell(y + height);
+		// most updates stay within the same cells
+		if (minX != minCellX[slot] || minY != minCellY[slot] || maxX != maxCellX[slot] || maxY != maxCellY[slot]) {
+			unlink(slot);
+			link(slot, minX, minY, maxX, maxY);
+		}
+	}
+
+	@Override
+	public void remove (int eid) {
+		int slot = slotOf(eid);
+		if (slot == -1)
+			return;
+		unlink(slot);
+		freeSlot(slot);
+	}
+
+	@Override
+	public boolean contains (int eid) {
+		return slotOf(eid) != -1;
+	}
+
+	@Override
+	public int size () {
+		return size;
+	}
+
+	/**
+	 * @return size of a side of a grid cell
+	 */
+	public float getCellSize () {
+		return cellSize;
+	}
+
+	/**
+	 * Returns entity ids of entities that touch the cell that contains given point
+	 *
+	 * Returned entities must be filtered further as these results are not exact
+	 */
+	@Override
+	public IntBag get (IntBag fill, float x, float y) {
+		int cellX = cell(x);
+		int cellY = cell(y);
+		int mark = nextStamp();
+		for (int ref = bucketHead[bucketOf(cellX, cellY)]; ref != NONE; ref = refNext[ref]) {
+			int slot = refSlot[ref];
+			if (slotMark[slot] != mark && touches(slot, cellX, cellY, cellX, cellY)) {
+				slotMark[slot] = mark;
+				fill.add(eids[slot]);
+			}
+		}
+		return fill;
+	}
+
+	@Override
+	public IntBag getExact (IntBag fill, float x, float y) {
+		final float[] xs = this.x;
+		final float[] ys = this.y;
+		final float[] widths = this.width;
+		final float[] heights = this.height;
+		int mark = nextStamp();
+		for (int ref = bucketHead[bucketOf(cell(x), cell(y))]; ref != NONE; ref = refNext[ref]) {
+			int slot = refSlot[ref];
+			if (slotMark[slot] != mark) {
+				slotMark[slot] = mark;
+				if (xs[slot] <= x && xs[slot] + widths[slot] >= x && ys[slot] <= y && ys[slot] + heights[slot] >= y) {
+					fill.add(eids[slot]);
+				}
+			}
+		}
+		return fill;
+	}
+
+	/**
+	 * Returns entity ids of entities that touch cells that overlap given bounds
+	 *
+	 * Returned entities must be filtered further as these results are not exact
+	 */
+	@Override
+	public IntBag get (IntBag fill, float x, float y, float width, float height) {
+		return get(fill, x, y, width, height, false);
+	}
+
+	@Override
+	public IntBag getExact (IntBag fill, float x, float y, float width, float height) {
+		return get(fill, x, y, width, height, true);
+	}
+
+	private IntBag get (IntBag fill, float x, float y, float width, float height, boolean exact) {
+		int minX = cell(x);
+		int minY = cell(y);
+		int maxX = cell(x + width);
+		int maxY = cell(y + height);
+		int mark = nextStamp();
+		long cells = (long)(maxX - minX + 1) * (maxY - minY + 1);
+		if (cells >= bucketHead.length) {
+			// query covers more cells than there are buckets, visit every bucket once instead
+			for (int bucket = 0; bucket < bucketHead.length; bucket++) {
+				collect(fill, bucket, mark, minX, minY, maxX, maxY, exact, x, y, width, height);
+			}
+		} else {
+			for (int cellY = minY; cellY <= maxY; cellY++) {
+				for (int cellX = minX; cellX <= maxX; cellX++) {
+					collect(fill, bucketOf(cellX, cellY), mark, minX, minY, maxX, maxY, exact, x, y, width, height);
+				}
+			}
+		}
+		return fill;
+	}
+
+	private void collect (IntBag fill, int bucket, int mark, int minX, int minY, int maxX, int maxY, boolean exact,
+		float x, float y, float width, float height) {
+		for (int ref = bucketHead[bucket]; ref != NONE; ref = refNext[ref]) {
+			int slot = refSlot[ref];
+			if (slotMark[slot] == mark) {
+				continue;
+			}
+			if (exact) {
+				slotMark[slot] = mark;
+				if (this.x[slot] < x + width && this.x[slot] + this.width[slot] > x
+					&& this.y[slot] < y + height && this.y[slot] + this.height[slot] > y) {
+					fill.add(eids[slot]);
+				}
+			} else if (touches(slot, minX, minY, maxX, maxY)) {
+				// buckets are shared by cells, skip entities that only touch unrelated cells
+				slotMark[slot] = mark;
+				fill.add(eids[slot]);
+			}
+		}
+	}
+
+	private boolean touches (int slot, int minX, int minY, int maxX, int maxY) {
+		return minCellX[slot] <= maxX && maxCellX[slot] >= minX && minCellY[slot] <= maxY && maxCellY[slot] >= minY;
+	}
+
+	private int nextStamp () {
+		if (++stamp == 0) {
+			// wrapped around, old marks could match new stamps
+			Arrays.fill(slotMark, 0);
+			stamp = 1;
+		}
+		return stamp;
+	}
+
+	@Override
+	public void reset () {
+		for (int slot = 0; slot < size; slot++) {
+			idToSlot[eids[slot]] = -1;
+		}
+		size = 0;
+		Arrays.fill(bucketHead, NONE);
+		refCount = 0;
+		refFree = NONE;
+	}
+
+	@Override
+	public void dispose () {
+		reset();
+	}
+
+	/**
+	 * Reference given slot from every cell in given range
+	 */
+	private void link (int slot, int minX, int minY, int maxX, int maxY) {
+		minCellX[slot] = minX;
+		minCellY[slot] = minY;
+		maxCellX[slot] = maxX;
+		maxCellY[slot] = maxY;
+		int first = NONE;
+		for (int cellY = minY; cellY <= maxY; cellY++) {
+			for (int cellX = minX; cellX <= maxX; cellX++) {
+				int bucket = bucketOf(cellX, cellY);
+				int ref = obtainRef();
+				int head = bucketHead[bucket];
+				refSlot[ref] = slot;
+				refBucket[ref] = bucket;
+				refPrev[ref] = NONE;
+				refNext[ref] = head;
+				if (head != NONE) {
+					refPrev[head] = ref;
+				}
+				bucketHead[bucket] = ref;
+				refSibling[ref] = first;
+				first = ref;
+			}
+		}
+		slotFirstRef[slot] = first;
+	}
+
+	/**
+	 * Remove all cell references of given slot
+	 */
+	private void unlink (int slot) {
+		int ref = slotFirstRef[slot];
+		while (ref != NONE) {
+			int prev = refPrev[ref];
+			int next = refNext[ref];
+			if (prev != NONE) {
+				refNext[prev] = next;
+			} else {
+				bucketHead[refBucket[ref]] = next;
+			}
+			if (next != NONE) {
+				refPrev[next] = prev;
+			}
+			int sibling = refSibling[ref];
+			refNext[ref] = refFree;
+			refFree = ref;
+			ref = sibling;
+		}
+		slotFirstRef[slot] = NONE;
+	}
+
+	private int obtainRef () {
+		if (refFree != NONE) {
+			int ref = refFree;
+			refFree = refNext[ref];
+			return ref;
+		}
+		if (refCount == refSlot.length) {
+			int capacity = refCount * 2;
+			refSlot = Arrays.copyOf(refSlot, capacity);
+			refBucket = Arrays.copyOf(refBucket, capacity);
+			refPrev = Arrays.copyOf(refPrev, capacity);
+			refNext = Arrays.copyOf(refNext, capacity);
+			refSibling = Arrays.copyOf(refSibling, capacity);
+		}
+		return refCount++;
+	}
+
+	private int slotOf (int id) {
+		return id >= 0 && id < idToSlot.length ? idToSlot[id] : -1;
+	}
+
+	private int obtainSlot (int eid) {
+		if (eid >= idToSlot.length) {
+			int oldLength = idToSlot.length;
+			idToSlot = Arrays.copyOf(idToSlot, Math.max(oldLength * 2, eid + 1));
+			Arrays.fill(idToSlot, oldLength, idToSlot.length, -1);
+		}
+		if (size == eids.length) {
+			int capacity = size * 2;
+			eids = Arrays.copyOf(eids, capacity);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			width = Arrays.copyOf(width, capacity);
+			height = Arrays.copyOf(height, capacity);
+			minCellX = Arrays.copyOf(minCellX, capacity);
+			minCellY = Arrays.copyOf(minCellY, capacity);
+			maxCellX = Arrays.copyOf(maxCellX, capacity);
+			maxCellY = Arrays.copyOf(maxCellY, capacity);
+			slotFirstRef = Arrays.copyOf(slotFirstRef, capacity);
+			slotMark = Arrays.copyOf(slotMark, capacity);
+		}
+		int slot = size++;
+		eids[slot] = eid;
+		slotFirstRef[slot] = NONE;
+		slotMark[slot] = 0;
+		idToSlot[eid] = slot;
+		return slot;
+	}
+
+	/**
+	 * Free given unlinked slot, last slot is moved into it to keep slots densely packed
+	 */
+	private void freeSlot (int slot) {
+		idToSlot[eids[slot]] = -1;
+		int last = --size;
+		if (slot == last) {
+			return;
+		}
+		int eid = eids[last];
+		eids[slot] = eid;
+		x[slot] = x[last];
+		y[slot] = y[last];
+		width[slot] = width[last];
+		height[slot] = height[last];
+		minCellX[slot] = minCellX[last];
+		minCellY[slot] = minCellY[last];
+		maxCellX[slot] = maxCellX[last];
+		maxCellY[slot] = maxCellY[last];
+		slotMark[slot] = slotMark[last];
+		int first = slotFirstRef[last];
+		slotFirstRef[slot] = first;
+		for (int ref = first; ref != NONE; ref = refSibling[ref]) {
+			refSlot[ref] = slot;
+		}
+		idToSlot[eid] = slot;
+	}
+
+	@Override public String toString () {
+		return "SpatialHashGrid{" +
+			"size=" + size + ", cellSize=" + cellSize + ", buckets=" + bucketHead.length + "}";
+	}
+}
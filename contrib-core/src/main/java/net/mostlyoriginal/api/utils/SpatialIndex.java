@@ -0,0 +1,71 @@
+package net.mostlyoriginal.api.utils;
+
+import com.artemis.utils.IntBag;
+
+/**
+ * Spatial structure for queries of entity ids by their axis aligned bounds in 2d space
+ *
+ * @see QuadTree
+ * @see FlatQuadTree
+ * @see SpatialHashGrid
+ */
+public interface SpatialIndex {
+	/**
+	 * Inserts given entity id with given bounds, updates bounds if the id is already present
+	 */
+	void insert (int eid, float x, float y, float width, float height);
+
+	/**
+	 * Update bounds for this id with new ones, inserts the id if it is not present
+	 */
+	void update (int eid, float x, float y, float width, float height);
+
+	/**
+	 * Remove this id from the index
+	 */
+	void remove (int eid);
+
+	/**
+	 * @return true if given entity id is stored in this index
+	 */
+	boolean contains (int eid);
+
+	/**
+	 * @return count of entity ids stored in this index
+	 */
+	int size ();
+
+	/**
+	 * Returns entity ids of entities that may contain given point
+	 *
+	 * Returned entities must be filtered further as these results are not exact
+	 */
+	IntBag get (IntBag fill, float x, float y);
+
+	/**
+	 * Returns entity ids of entities that bounds contain given point
+	 */
+	IntBag getExact (IntBag fill, float x, float y);
+
+	/**
+	 * Returns entity ids of entities that may overlap given bounds
+	 *
+	 * Returned entities must be filtered further as these results are not exact
+	 */
+	IntBag get (IntBag fill, float x, float y, float width, float height);
+
+	/**
+	 * Returns entity ids of entities that overlap given bounds
+	 */
+	IntBag getExact (IntBag fill, float x, float y, float width, float height);
+
+	/**
+	 * Remove all stored ids
+	 */
+	void reset ();
+
+	/**
+	 * Dispose of the index by removing all stored ids
+	 */
+	void dispose ();
+}
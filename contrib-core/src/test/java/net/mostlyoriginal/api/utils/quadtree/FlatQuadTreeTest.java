@@ -0,0 +1,110 @@
+package net.mostlyoriginal.api.utils.quadtree;
+
+import com.artemis.utils.IntBag;
+import net.mostlyoriginal.api.utils.FlatQuadTree;
+import net.mostlyoriginal.api.utils.QuadTree;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link net.mostlyoriginal.api.utils.FlatQuadTree}
+ */
+public class FlatQuadTreeTest {
+	@Test
+	public void get_exact_test() {
+		IntBag fill = new IntBag();
+		FlatQuadTree tree = new FlatQuadTree(-8, -8, 16, 16, 1, 8);
+		tree.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(0, fill.size());
+
+		tree.insert(1, -6, -6, 2, 2); // fully outside test region
+		fill.clear();
+		tree.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(0, fill.size());
+
+		tree.insert(2, 6, -6, 2, 2); // fully outside test region
+		tree.insert(3, -2, 2, 2, 2); // overlaps test region
+		tree.insert(4, 2, 2, 2, 2); // overlaps test region
+		fill.clear();
+		tree.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(2, fill.size());
+
+		// move inside test region
+		tree.update(1, -2, -2, 2, 2);
+		fill.clear();
+		tree.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(3, fill.size());
+
+		// move outside test region
+		tree.update(1, -6, -6, 2, 2);
+		fill.clear();
+		tree.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(2, fill.size());
+
+		fill.clear();
+		tree.getExact(fill, -5, -5);
+		Assert.assertEquals(1, fill.size());
+		Assert.assertEquals(1, fill.get(0));
+
+		tree.remove(3);
+		tree.remove(4);
+		fill.clear();
+		tree.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(0, fill.size());
+		Assert.assertEquals(2, tree.size());
+
+		tree.reset();
+		Assert.assertEquals(0, tree.size());
+		Assert.assertEquals(1, tree.getNodeCount());
+		Assert.assertFalse(tree.contains(1));
+	}
+
+	@Test
+	public void matches_quad_tree_test() {
+		Random random = new Random(0);
+		QuadTree tree = new QuadTree(0, 0, 64, 64);
+		FlatQuadTree flat = new FlatQuadTree(0, 0, 64, 64, 4, 6);
+		int count = 2000;
+		for (int id = 0; id < count; id++) {
+			float x = random.nextFloat() * 62;
+			float y = random.nextFloat() * 62;
+			float size = 0.1f + random.nextFloat() * 2;
+			tree.insert(id, x, y, size, size);
+			flat.insert(id, x, y, size, size);
+		}
+		// move half, remove a quarter
+		for (int id = 0; id < count; id += 2) {
+			float x = random.nextFloat() * 62;
+			float y = random.nextFloat() * 62;
+			tree.update(id, x, y, 1, 1);
+			flat.update(id, x, y, 1, 1);
+		}
+		for (int id = 0; id < count; id += 4) {
+			tree.remove(id);
+			flat.remove(id);
+		}
+		Assert.assertEquals(tree.size(), flat.size());
+
+		IntBag expected = new IntBag();
+		IntBag actual = new IntBag();
+		for (int i = 0; i < 200; i++) {
+			float x = random.nextFloat() * 60;
+			float y = random.nextFloat() * 60;
+			float width = random.nextFloat() * 16;
+			float height = random.nextFloat() * 16;
+			expected.clear();
+			actual.clear();
+			tree.getExact(expected, x, y, width, height);
+			flat.getExact(actual, x, y, width, height);
+			QuadTreeTest.assertSameIds(expected, actual);
+
+			expected.clear();
+			actual.clear();
+			tree.getExact(expected, x, y);
+			flat.getExact(actual, x, y);
+			QuadTreeTest.assertSameIds(expected, actual);
+		}
+	}
+}
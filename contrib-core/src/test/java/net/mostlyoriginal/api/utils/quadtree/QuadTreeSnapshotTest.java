@@ -0,0 +1,128 @@
+package net.mostlyoriginal.api.utils.quadtree;
+
+import com.artemis.utils.IntBag;
+import net.mostlyoriginal.api.utils.IntVisitor;
+import net.mostlyoriginal.api.utils.QuadTree;
+import net.mostlyoriginal.api.utils.QuadTreeSnapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for {@link net.mostlyoriginal.api.utils.QuadTreeSnapshot}
+ */
+public class QuadTreeSnapshotTest {
+	@Test
+	public void snapshot_matches_tree_test() {
+		QuadTree.MAX_IN_BUCKET = 4;
+		Random random = new Random(0);
+		for (QuadTree tree : new QuadTree[]{new QuadTree(0, 0, 64, 64), new QuadTree(0, 0, 64, 64, 2)}) {
+			fill(random, tree, 2000);
+			// clear the left half, so some branches are empty
+			IntBag removed = tree.getExact(new IntBag(), 0, 0, 32, 64);
+			for (int i = 0; i < removed.size(); i++) {
+				tree.remove(removed.get(i));
+			}
+			QuadTreeSnapshot snapshot = tree.snapshot();
+			Assert.assertEquals(tree.size(), snapshot.size());
+			Assert.assertTrue(snapshot.getNodeCount() <= tree.getNodeCount());
+
+			IntBag expected = new IntBag();
+			IntBag actual = new IntBag();
+			for (int i = 0; i < 200; i++) {
+				float x = random.nextFloat() * 60;
+				float y = random.nextFloat() * 60;
+				float width = random.nextFloat() * 16;
+				float height = random.nextFloat() * 16;
+				expected.clear();
+				actual.clear();
+				tree.getExact(expected, x, y, width, height);
+				snapshot.getExact(actual, x, y, width, height);
+				QuadTreeTest.assertSameIds(expected, actual);
+
+				actual.clear();
+				snapshot.query(x, y, width, height, collect(actual));
+				QuadTreeTest.assertSameIds(expected, actual);
+
+				expected.clear();
+				actual.clear();
+				tree.getExact(expected, x, y);
+				snapshot.getExact(actual, x, y);
+				QuadTreeTest.assertSameIds(expected, actual);
+
+				actual.clear();
+				snapshot.query(x, y, collect(actual));
+				QuadTreeTest.assertSameIds(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void snapshot_unaffected_by_tree_test() throws InterruptedException {
+		QuadTree.MAX_IN_BUCKET = 4;
+		Random random = new Random(0);
+		final QuadTree tree = new QuadTree(0, 0, 64, 64);
+		fill(random, tree, 2000);
+		final QuadTreeSnapshot snapshot = tree.snapshot();
+
+		final int queries = 100;
+		final float[][] bounds = new float[queries][];
+		final IntBag[] expected = new IntBag[queries];
+		for (int i = 0; i < queries; i++) {
+			bounds[i] = new float[]{random.nextFloat() * 60, random.nextFloat() * 60, random.nextFloat() * 16, random.nextFloat() * 16};
+			expected[i] = snapshot.getExact(new IntBag(), bounds[i][0], bounds[i][1], bounds[i][2], bounds[i][3]);
+		}
+
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] readers = new Thread[4];
+		for (int t = 0; t < readers.length; t++) {
+			readers[t] = new Thread(new Runnable() {
+				@Override public void run () {
+					try {
+						IntBag actual = new IntBag();
+						for (int round = 0; round < 20; round++) {
+							for (int i = 0; i < queries; i++) {
+								actual.clear();
+								snapshot.getExact(actual, bounds[i][0], bounds[i][1], bounds[i][2], bounds[i][3]);
+								QuadTreeTest.assertSameIds(expected[i], actual);
+							}
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			});
+			readers[t].start();
+		}
+		// keep changing the live tree while snapshot is queried
+		for (int round = 0; round < 20; round++) {
+			for (int id = 0; id < 2000; id++) {
+				tree.update(id, random.nextFloat() * 62, random.nextFloat() * 62, 1, 1);
+			}
+		}
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+
+	private static void fill (Random random, QuadTree tree, int count) {
+		for (int id = 0; id < count; id++) {
+			float size = 0.1f + random.nextFloat() * 2;
+			tree.insert(id, random.nextFloat() * 62, random.nextFloat() * 62, size, size);
+		}
+	}
+
+	private static IntVisitor collect (final IntBag fill) {
+		return new IntVisitor() {
+			@Override public boolean visit (int eid) {
+				fill.add(eid);
+				return true;
+			}
+		};
+	}
+}
@@ -1,10 +1,18 @@
 package net.mostlyoriginal.api.utils.quadtree;
 
 import com.artemis.utils.IntBag;
+import net.mostlyoriginal.api.utils.IntVisitor;
 import net.mostlyoriginal.api.utils.QuadTree;
+import net.mostlyoriginal.api.utils.QuadTreeStats;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
 /**
  * Tests for {@link net.mostlyoriginal.api.utils.QuadTree}
  *
@@ -149,4 +157,509 @@ public class QuadTreeTest {
 		tree.insert(8, -4, -4, 2, 2); // fully inside
 
 	}
+
+	@Test
+	public void separate_trees_test() {
+		IntBag fill = new IntBag();
+		QuadTree first = new QuadTree(-8, -8, 16, 16, 0, 1, 8);
+		QuadTree second = new QuadTree(-8, -8, 16, 16, 0, 1, 8);
+
+		// same ids in both trees, at different positions
+		first.insert(1, -6, -6, 2, 2);
+		first.insert(2, 4, 4, 2, 2);
+		second.insert(1, 4, 4, 2, 2);
+		Assert.assertEquals(2, first.size());
+		Assert.assertEquals(1, second.size());
+
+		fill.clear();
+		first.getExact(fill, -6, -6, 2, 2);
+		Assert.assertEquals(1, fill.size());
+		Assert.assertEquals(1, fill.get(0));
+
+		fill.clear();
+		second.getExact(fill, -6, -6, 2, 2);
+		Assert.assertEquals(0, fill.size());
+
+		// removing from one tree does not affect the other
+		second.remove(1);
+		Assert.assertFalse(second.contains(1));
+		Assert.assertTrue(first.contains(1));
+		fill.clear();
+		first.getExact(fill, -6, -6, 2, 2);
+		Assert.assertEquals(1, fill.size());
+
+		first.update(1, 4, 4, 1, 1);
+		fill.clear();
+		first.getExact(fill, 4.5f, 4.5f);
+		Assert.assertEquals(2, fill.size());
+
+		first.reset();
+		Assert.assertEquals(0, first.size());
+		Assert.assertFalse(first.contains(2));
+	}
+
+	@Test
+	public void loose_straddling_test() {
+		IntBag fill = new IntBag();
+		QuadTree tree = new QuadTree(0, 0, 16, 16, 0, 1, 8);
+		QuadTree loose = new QuadTree(0, 0, 16, 16, 2, 1, 8);
+		Assert.assertTrue(loose.isLoose());
+		Assert.assertFalse(tree.isLoose());
+
+		// all straddle vertical midline of the root
+		for (int id = 0; id < 16; id++) {
+			tree.insert(id, 7.5f, id + 0.25f, 1, 0.5f);
+			loose.insert(id, 7.5f, id + 0.25f, 1, 0.5f);
+		}
+
+		// regular tree keeps them all in the root, so they are returned for any query
+		fill.clear();
+		tree.get(fill, 0.5f, 0.5f, 1, 1);
+		Assert.assertEquals(16, fill.size());
+
+		// loose tree pushes them down, only the nearby one remains a candidate
+		fill.clear();
+		loose.get(fill, 0.5f, 0.5f, 1, 1);
+		Assert.assertTrue(fill.size() < 16);
+
+		fill.clear();
+		loose.getExact(fill, 7, 0, 2, 1);
+		Assert.assertEquals(1, fill.size());
+		Assert.assertEquals(0, fill.get(0));
+
+		fill.clear();
+		loose.getExact(fill, 8, 15.5f);
+		Assert.assertEquals(1, fill.size());
+		Assert.assertEquals(15, fill.get(0));
+	}
+
+	@Test
+	public void loose_matches_regular_test() {
+		Random random = new Random(0);
+		QuadTree tree = new QuadTree(0, 0, 64, 64, 0, 4, 8);
+		QuadTree loose = new QuadTree(0, 0, 64, 64, 1.5f, 4, 8);
+		int count = 1000;
+		for (int id = 0; id < count; id++) {
+			float x = random.nextFloat() * 62;
+			float y = random.nextFloat() * 62;
+			float size = 0.1f + random.nextFloat() * 2;
+			tree.insert(id, x, y, size, size);
+			loose.insert(id, x, y, size, size);
+		}
+		for (int id = 0; id < count; id += 2) {
+			float x = random.nextFloat() * 62;
+			float y = random.nextFloat() * 62;
+			tree.update(id, x, y, 1, 1);
+			loose.update(id, x, y, 1, 1);
+		}
+		for (int id = 0; id < count; id += 3) {
+			tree.remove(id);
+			loose.remove(id);
+		}
+
+		assertSameResults(random, tree, loose);
+	}
+
+	@Test
+	public void rebuild_matches_insert_test() {
+		rebuild_matches_insert(new QuadTree(0, 0, 64, 64, 0, 4, 8), new QuadTree(0, 0, 64, 64, 0, 4, 8));
+		rebuild_matches_insert(new QuadTree(0, 0, 64, 64, 0, 4, 8), new QuadTree(0, 0, 64, 64, 2, 4, 8));
+	}
+
+	@Test
+	public void rebuild_duplicate_id_keeps_tree_test() {
+		QuadTree tree = new QuadTree(0, 0, 64, 64);
+		tree.insert(7, 1, 1, 1, 1);
+		int[] ids = {1, 2, 1};
+		float[] values = {10, 20, 30};
+		try {
+			tree.rebuild(ids, values, values, values, values, ids.length);
+			Assert.fail("Duplicate id should be rejected");
+		} catch (IllegalArgumentException expected) {
+		}
+		Assert.assertEquals(1, tree.size());
+		Assert.assertTrue(tree.contains(7));
+		Assert.assertFalse(tree.contains(2));
+
+		// same ids are fine in the next rebuild
+		tree.rebuild(new int[]{1, 2}, values, values, values, values, 2);
+		Assert.assertEquals(2, tree.size());
+		Assert.assertFalse(tree.contains(7));
+	}
+
+	private void rebuild_matches_insert (QuadTree tree, QuadTree rebuilt) {
+		Random random = new Random(0);
+		int count = 1000;
+		int[] ids = new int[count];
+		float[] xs = new float[count];
+		float[] ys = new float[count];
+		float[] widths = new float[count];
+		float[] heights = new float[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = count - i;
+			xs[i] = random.nextFloat() * 62;
+			ys[i] = random.nextFloat() * 62;
+			widths[i] = 0.1f + random.nextFloat() * 2;
+			heights[i] = 0.1f + random.nextFloat() * 2;
+			tree.insert(ids[i], xs[i], ys[i], widths[i], heights[i]);
+		}
+		// stale contents must be dropped
+		rebuilt.insert(count * 2, 1, 1, 1, 1);
+		rebuilt.rebuild(ids, xs, ys, widths, heights, count);
+		Assert.assertEquals(count, rebuilt.size());
+		Assert.assertFalse(rebuilt.contains(count * 2));
+		assertSameResults(random, tree, rebuilt);
+
+		// rebuilt tree must remain usable for regular updates
+		for (int i = 0; i < count; i += 2) {
+			float x = random.nextFloat() * 62;
+			float y = random.nextFloat() * 62;
+			tree.update(ids[i], x, y, 1, 1);
+			rebuilt.update(ids[i], x, y, 1, 1);
+		}
+		for (int i = 0; i < count; i += 3) {
+			tree.remove(ids[i]);
+			rebuilt.remove(ids[i]);
+		}
+		assertSameResults(random, tree, rebuilt);
+	}
+
+	@Test
+	public void collapse_on_remove_test() {
+		Random random = new Random(0);
+		QuadTree tree = new QuadTree(0, 0, 64, 64, 0, 4, 8);
+		int count = 1000;
+		for (int id = 0; id < count; id++) {
+			tree.insert(id, random.nextFloat() * 62, random.nextFloat() * 62, 1, 1);
+		}
+		int spreadNodeCount = tree.getNodeCount();
+		Assert.assertTrue(spreadNodeCount > 1);
+
+		// move everything into one corner, rest of the tree must collapse
+		QuadTree reference = new QuadTree(0, 0, 64, 64, 0, 4, 8);
+		for (int id = 0; id < count; id++) {
+			float x = random.nextFloat() * 6;
+			float y = random.nextFloat() * 6;
+			tree.update(id, x, y, 0.5f, 0.5f);
+			reference.insert(id, x, y, 0.5f, 0.5f);
+		}
+		Assert.assertTrue(tree.getNodeCount() < spreadNodeCount);
+		assertSameResults(random, reference, tree);
+
+		for (int id = 0; id < count; id += 2) {
+			tree.remove(id);
+			reference.remove(id);
+		}
+		assertSameResults(random, reference, tree);
+
+		for (int id = 1; id < count; id += 2) {
+			tree.remove(id);
+		}
+		Assert.assertEquals(0, tree.size());
+		Assert.assertEquals(1, tree.getNodeCount());
+		Assert.assertNull(tree.getNodes()[0]);
+	}
+
+	@Test
+	public void query_visitor_test() {
+		QuadTree tree = new QuadTree(-8, -8, 16, 16, 0, 1, 8);
+		tree.insert(1, -6, -6, 2, 2);
+		tree.insert(2, 6, -6, 2, 2);
+		tree.insert(3, -2, 2, 2, 2);
+		tree.insert(4, 2, 2, 2, 2);
+
+		final IntBag visited = new IntBag();
+		IntVisitor collect = new IntVisitor() {
+			@Override public boolean visit (int eid) {
+				visited.add(eid);
+				return true;
+			}
+		};
+		Assert.assertTrue(tree.query(-2.5f, -2.5f, 5, 5, collect));
+		IntBag expected = new IntBag();
+		tree.getExact(expected, -2.5f, -2.5f, 5, 5);
+		assertSameIds(expected, visited);
+
+		visited.clear();
+		Assert.assertTrue(tree.query(-5, -5, collect));
+		Assert.assertEquals(1, visited.size());
+		Assert.assertEquals(1, visited.get(0));
+
+		// stop at first result
+		visited.clear();
+		Assert.assertFalse(tree.query(-8, -8, 16, 16, new IntVisitor() {
+			@Override public boolean visit (int eid) {
+				visited.add(eid);
+				return false;
+			}
+		}));
+		Assert.assertEquals(1, visited.size());
+
+		// overlapping queries sharing seen ids report each entity once
+		visited.clear();
+		BitSet seen = new BitSet();
+		tree.query(-7, -7, 10, 10, seen, collect);
+		tree.query(-3, -3, 10, 10, seen, collect);
+		Assert.assertEquals(3, visited.size());
+		Assert.assertTrue(seen.get(1));
+		Assert.assertTrue(seen.get(3));
+		Assert.assertTrue(seen.get(4));
+	}
+
+	@Test
+	public void nearest_test() {
+		QuadTree tree = new QuadTree(0, 0, 16, 16, 0, 4, 8);
+		tree.insert(1, 1, 1, 1, 1);
+		tree.insert(2, 4, 4, 1, 1);
+		tree.insert(3, 10, 10, 1, 1);
+		tree.insert(4, 14, 1, 1, 1);
+		tree.insert(5, 0, 0, 16, 0.5f);
+
+		IntBag fill = new IntBag();
+		tree.nearest(5, 5, 3, fill);
+		Assert.assertEquals(3, fill.size());
+		Assert.assertEquals(2, fill.get(0));
+		Assert.assertEquals(1, fill.get(1));
+		Assert.assertEquals(5, fill.get(2));
+
+		fill.clear();
+		tree.nearest(5, 5, 10, fill);
+		Assert.assertEquals(5, fill.size());
+
+		fill.clear();
+		tree.withinRadius(10.5f, 10.5f, 2, fill);
+		Assert.assertEquals(1, fill.size());
+		Assert.assertEquals(3, fill.get(0));
+
+		fill.clear();
+		tree.withinRadius(2, 2, 3, fill);
+		Assert.assertEquals(3, fill.size());
+		Assert.assertEquals(1, fill.get(0));
+	}
+
+	@Test
+	public void nearest_matches_linear_test() {
+		Random random = new Random(0);
+		for (QuadTree tree : new QuadTree[]{new QuadTree(0, 0, 64, 64, 0, 4, 8), new QuadTree(0, 0, 64, 64, 2, 4, 8)}) {
+			int count = 1000;
+			float[][] bounds = new float[count][];
+			for (int id = 0; id < count; id++) {
+				bounds[id] = new float[]{random.nextFloat() * 62, random.nextFloat() * 62, random.nextFloat() * 2, random.nextFloat() * 2};
+				tree.insert(id, bounds[id][0], bounds[id][1], bounds[id][2], bounds[id][3]);
+			}
+			IntBag fill = new IntBag();
+			for (int i = 0; i < 100; i++) {
+				float x = random.nextFloat() * 64;
+				float y = random.nextFloat() * 64;
+				float[] expected = new float[count];
+				for (int id = 0; id < count; id++) {
+					expected[id] = distance2(bounds[id], x, y);
+				}
+				Arrays.sort(expected);
+
+				fill.clear();
+				tree.nearest(x, y, 10, fill);
+				Assert.assertEquals(10, fill.size());
+				for (int j = 0; j < fill.size(); j++) {
+					Assert.assertEquals(expected[j], distance2(bounds[fill.get(j)], x, y), 0);
+				}
+
+				float radius = random.nextFloat() * 8;
+				fill.clear();
+				tree.withinRadius(x, y, radius, fill);
+				int inside = 0;
+				while (inside < count && expected[inside] <= radius * radius) {
+					inside++;
+				}
+				Assert.assertEquals(inside, fill.size());
+			}
+		}
+	}
+
+	@Test
+	public void raycast_test() {
+		QuadTree tree = new QuadTree(0, 0, 16, 16, 0, 1, 8);
+		tree.insert(1, 12, 1, 1, 1);
+		tree.insert(2, 2, 1, 1, 1);
+		tree.insert(3, 7, 0.5f, 1, 2);
+		tree.insert(4, 7, 8, 1, 1); // not on the ray
+
+		final IntBag hits = new IntBag();
+		tree.raycast(0, 1.5f, 16, 1.5f, new QuadTree.RaycastCallback() {
+			@Override public boolean hit (int eid, float fraction) {
+				hits.add(eid);
+				return true;
+			}
+		});
+		Assert.assertEquals(3, hits.size());
+		Assert.assertEquals(2, hits.get(0));
+		Assert.assertEquals(3, hits.get(1));
+		Assert.assertEquals(1, hits.get(2));
+
+		// stop after first two
+		hits.clear();
+		tree.raycast(0, 1.5f, 16, 1.5f, new QuadTree.RaycastCallback() {
+			@Override public boolean hit (int eid, float fraction) {
+				hits.add(eid);
+				return hits.size() < 2;
+			}
+		});
+		Assert.assertEquals(2, hits.size());
+
+		Assert.assertEquals(1, tree.firstHit(16, 1.5f, 0, 1.5f));
+		Assert.assertEquals(3, tree.firstHit(7.5f, 0, 7.5f, 16));
+		Assert.assertEquals(4, tree.firstHit(7.5f, 16, 7.5f, 0));
+		Assert.assertEquals(-1, tree.firstHit(0, 15, 16, 15));
+		// segment ends before reaching anything
+		Assert.assertEquals(-1, tree.firstHit(0, 1.5f, 1.5f, 1.5f));
+	}
+
+	@Test
+	public void first_hit_matches_linear_test() {
+		Random random = new Random(0);
+		for (QuadTree tree : new QuadTree[]{new QuadTree(0, 0, 64, 64, 0, 4, 8), new QuadTree(0, 0, 64, 64, 2, 4, 8)}) {
+			int count = 500;
+			QuadTree.Container[] bounds = new QuadTree.Container[count];
+			for (int id = 0; id < count; id++) {
+				bounds[id] = new QuadTree.Container().set(id, random.nextFloat() * 62, random.nextFloat() * 62, random.nextFloat() * 2, random.nextFloat() * 2);
+				tree.insert(id, bounds[id].getX(), bounds[id].getY(), bounds[id].getWidth(), bounds[id].getHeight());
+			}
+			for (int i = 0; i < 200; i++) {
+				float x0 = random.nextFloat() * 64;
+				float y0 = random.nextFloat() * 64;
+				float x1 = random.nextFloat() * 64;
+				float y1 = random.nextFloat() * 64;
+				float expected = -1;
+				for (int id = 0; id < count; id++) {
+					float fraction = bounds[id].intersect(x0, y0, x1 - x0, y1 - y0);
+					if (fraction >= 0 && (expected < 0 || fraction < expected)) {
+						expected = fraction;
+					}
+				}
+				int hit = tree.firstHit(x0, y0, x1, y1);
+				if (expected < 0) {
+					Assert.assertEquals(-1, hit);
+				} else {
+					Assert.assertEquals(expected, bounds[hit].intersect(x0, y0, x1 - x0, y1 - y0), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void overlapping_pairs_match_linear_test() {
+		Random random = new Random(0);
+		for (QuadTree tree : new QuadTree[]{new QuadTree(0, 0, 64, 64, 0, 4, 8), new QuadTree(0, 0, 64, 64, 2, 4, 8)}) {
+			int count = 1000;
+			QuadTree.Container[] bounds = new QuadTree.Container[count];
+			for (int id = 0; id < count; id++) {
+				bounds[id] = new QuadTree.Container().set(id, random.nextFloat() * 62, random.nextFloat() * 62, random.nextFloat() * 3, random.nextFloat() * 3);
+				tree.insert(id, bounds[id].getX(), bounds[id].getY(), bounds[id].getWidth(), bounds[id].getHeight());
+			}
+			final Set<Long> expected = new HashSet<>();
+			for (int a = 0; a < count; a++) {
+				for (int b = a + 1; b < count; b++) {
+					if (bounds[a].overlaps(bounds[b])) {
+						expected.add(pair(a, b));
+					}
+				}
+			}
+			Assert.assertFalse(expected.isEmpty());
+
+			final Set<Long> actual = new HashSet<>();
+			tree.forEachOverlappingPair(new QuadTree.PairCallback() {
+				@Override public void overlap (int eidA, int eidB) {
+					Assert.assertTrue("Pair reported twice", actual.add(pair(eidA, eidB)));
+				}
+			});
+			Assert.assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void stats_test() {
+		// own limits, unaffected by the statics
+		QuadTree tree = new QuadTree(0, 0, 64, 64, 0, 4, 3);
+		Assert.assertEquals(4, tree.getMaxInBucket());
+		Assert.assertEquals(3, tree.getMaxDepth());
+		Random random = new Random(0);
+		int count = 1000;
+		for (int id = 0; id < count; id++) {
+			tree.insert(id, random.nextFloat() * 62, random.nextFloat() * 62, random.nextFloat() * 2, random.nextFloat() * 2);
+		}
+		// straddles the root midlines
+		tree.insert(count, 31, 31, 2, 2);
+
+		QuadTreeStats stats = tree.getStats(new QuadTreeStats());
+		Assert.assertEquals(count + 1, stats.size);
+		Assert.assertEquals(tree.getNodeCount(), stats.nodeCount);
+		Assert.assertEquals(stats.nodeCount, 1 + 4 * (stats.nodeCount - stats.leafCount));
+		Assert.assertEquals(3, stats.maxDepth);
+		Assert.assertTrue(stats.nonLeafEntries >= 1);
+		Assert.assertEquals(6, stats.bucketHistogram.length);
+		int nodes = 0;
+		int entries = 0;
+		for (int size = 0; size < stats.bucketHistogram.length; size++) {
+			nodes += stats.bucketHistogram[size];
+			entries += size * stats.bucketHistogram[size];
+		}
+		Assert.assertEquals(stats.nodeCount, nodes);
+		// last bucket holds nodes over the limit, which have at least that many entries
+		Assert.assertTrue(entries <= stats.size);
+		Assert.assertTrue(stats.bucketHistogram[5] > 0);
+
+		Assert.assertEquals(0, stats.queries);
+		Assert.assertEquals(0, stats.getAverageNodesVisited(), 0);
+		IntBag fill = new IntBag();
+		tree.getExact(fill, 10, 10);
+		tree.getExact(fill, 10, 10, 40, 40);
+		tree.getStats(stats);
+		Assert.assertEquals(2, stats.queries);
+		Assert.assertTrue(stats.getAverageNodesVisited() > 1);
+
+		tree.resetQueryStats();
+		tree.getStats(stats);
+		Assert.assertEquals(0, stats.queries);
+		Assert.assertEquals(0, stats.nodesVisited);
+	}
+
+	private static long pair (int a, int b) {
+		return ((long)Math.min(a, b) << 32) | Math.max(a, b);
+	}
+
+	private static float distance2 (float[] bounds, float x, float y) {
+		float dx = Math.max(Math.max(bounds[0] - x, x - (bounds[0] + bounds[2])), 0);
+		float dy = Math.max(Math.max(bounds[1] - y, y - (bounds[1] + bounds[3])), 0);
+		return dx * dx + dy * dy;
+	}
+
+	static void assertSameResults (Random random, QuadTree expectedTree, QuadTree actualTree) {
+		IntBag expected = new IntBag();
+		IntBag actual = new IntBag();
+		for (int i = 0; i < 200; i++) {
+			float x = random.nextFloat() * 60;
+			float y = random.nextFloat() * 60;
+			float width = random.nextFloat() * 16;
+			float height = random.nextFloat() * 16;
+			expected.clear();
+			actual.clear();
+			expectedTree.getExact(expected, x, y, width, height);
+			actualTree.getExact(actual, x, y, width, height);
+			assertSameIds(expected, actual);
+
+			expected.clear();
+			actual.clear();
+			expectedTree.getExact(expected, x, y);
+			actualTree.getExact(actual, x, y);
+			assertSameIds(expected, actual);
+		}
+	}
+
+	static void assertSameIds (IntBag expected, IntBag actual) {
+		int[] e = Arrays.copyOf(expected.getData(), expected.size());
+		int[] a = Arrays.copyOf(actual.getData(), actual.size());
+		Arrays.sort(e);
+		Arrays.sort(a);
+		Assert.assertArrayEquals(e, a);
+	}
 }
@@ -0,0 +1,136 @@
+package net.mostlyoriginal.api.utils.quadtree;
+
+import com.artemis.utils.IntBag;
+import net.mostlyoriginal.api.utils.QuadTree;
+import net.mostlyoriginal.api.utils.SpatialHashGrid;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link net.mostlyoriginal.api.utils.SpatialHashGrid}
+ */
+public class SpatialHashGridTest {
+	@Test
+	public void get_exact_test() {
+		IntBag fill = new IntBag();
+		SpatialHashGrid grid = new SpatialHashGrid(1, 16);
+		grid.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(0, fill.size());
+
+		grid.insert(1, -6, -6, 2, 2); // fully outside test region
+		fill.clear();
+		grid.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(0, fill.size());
+
+		grid.insert(2, 6, -6, 2, 2); // fully outside test region
+		grid.insert(3, -2, 2, 2, 2); // overlaps test region
+		grid.insert(4, 2, 2, 2, 2); // overlaps test region
+		fill.clear();
+		grid.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(2, fill.size());
+
+		// move inside test region
+		grid.update(1, -2, -2, 2, 2);
+		fill.clear();
+		grid.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(3, fill.size());
+
+		// move outside test region
+		grid.update(1, -6, -6, 2, 2);
+		fill.clear();
+		grid.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(2, fill.size());
+
+		fill.clear();
+		grid.getExact(fill, -5, -5);
+		Assert.assertEquals(1, fill.size());
+		Assert.assertEquals(1, fill.get(0));
+
+		// spans many cells, must be reported once
+		grid.insert(5, -100, -100, 200, 1);
+		fill.clear();
+		grid.getExact(fill, -50, -100, 100, 2);
+		Assert.assertEquals(1, fill.size());
+		Assert.assertEquals(5, fill.get(0));
+
+		grid.remove(3);
+		grid.remove(4);
+		grid.remove(5);
+		fill.clear();
+		grid.getExact(fill, -2.5f, -2.5f, 5, 5);
+		Assert.assertEquals(0, fill.size());
+		Assert.assertEquals(2, grid.size());
+
+		grid.reset();
+		Assert.assertEquals(0, grid.size());
+		Assert.assertFalse(grid.contains(1));
+	}
+
+	@Test
+	public void matches_quad_tree_test() {
+		Random random = new Random(0);
+		QuadTree tree = new QuadTree(0, 0, 64, 64);
+		// few buckets, so cells collide and large queries scan all buckets
+		SpatialHashGrid grid = new SpatialHashGrid(2, 64);
+		int count = 2000;
+		for (int id = 0; id < count; id++) {
+			float x = random.nextFloat() * 62;
+			float y = random.nextFloat() * 62;
+			float size = 0.1f + random.nextFloat() * 2;
+			tree.insert(id, x, y, size, size);
+			grid.insert(id, x, y, size, size);
+		}
+		// move half, remove a quarter
+		for (int id = 0; id < count; id += 2) {
+			float x = random.nextFloat() * 62;
+			float y = random.nextFloat() * 62;
+			tree.update(id, x, y, 1, 1);
+			grid.update(id, x, y, 1, 1);
+		}
+		for (int id = 0; id < count; id += 4) {
+			tree.remove(id);
+			grid.remove(id);
+		}
+		Assert.assertEquals(tree.size(), grid.size());
+
+		IntBag expected = new IntBag();
+		IntBag actual = new IntBag();
+		for (int i = 0; i < 200; i++) {
+			float x = random.nextFloat() * 60;
+			float y = random.nextFloat() * 60;
+			float width = random.nextFloat() * 32;
+			float height = random.nextFloat() * 32;
+			expected.clear();
+			actual.clear();
+			tree.getExact(expected, x, y, width, height);
+			grid.getExact(actual, x, y, width, height);
+			QuadTreeTest.assertSameIds(expected, actual);
+
+			// candidates must include all exact results, without duplicates
+			IntBag candidates = grid.get(new IntBag(), x, y, width, height);
+			assertContainsAll(candidates, actual);
+
+			expected.clear();
+			actual.clear();
+			tree.getExact(expected, x, y);
+			grid.getExact(actual, x, y);
+			QuadTreeTest.assertSameIds(expected, actual);
+
+			candidates = grid.get(new IntBag(), x, y);
+			assertContainsAll(candidates, actual);
+		}
+	}
+
+	private static void assertContainsAll (IntBag candidates, IntBag exact) {
+		for (int i = 0; i < candidates.size(); i++) {
+			for (int j = i + 1; j < candidates.size(); j++) {
+				Assert.assertNotEquals(candidates.get(i), candidates.get(j));
+			}
+		}
+		for (int i = 0; i < exact.size(); i++) {
+			Assert.assertTrue(candidates.contains(exact.get(i)));
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package net.mostlyoriginal.api.event.processor;
+
+import net.mostlyoriginal.api.event.common.Event;
+import net.mostlyoriginal.api.event.common.EventListener;
+import net.mostlyoriginal.api.event.common.ListenerInvoker;
+import net.mostlyoriginal.api.event.common.ListenerTable;
+import net.mostlyoriginal.api.event.common.Subscribe;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@link ListenerTable} for every class with {@link Subscribe} methods.
+ *
+ * Tables call the listener methods directly, so listener methods and the classes
+ * declaring them must not be private. Violations are reported as compile errors.
+ *
+ * Picked up automatically when this module is on the compile classpath, use
+ * {@link net.mostlyoriginal.api.event.common.GeneratedListenerFinder} to register
+ * listeners from the generated tables.
+ */
+@SupportedAnnotationTypes("net.mostlyoriginal.api.event.common.Subscribe")
+public class SubscribeProcessor extends AbstractProcessor {
+
+	private static final String EVENT_LISTENER = EventListener.class.getName();
+	private static final String LISTENER_INVOKER = ListenerInvoker.class.getName();
+	private static final String LISTENER_TABLE = ListenerTable.class.getName();
+	private static final String EVENT = Event.class.getName();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		final Map<TypeElement, List<ExecutableElement>> listenersByType = new LinkedHashMap<>();
+		for (Element element : roundEnv.getElementsAnnotatedWith(Subscribe.class)) {
+			final ExecutableElement method = (ExecutableElement) element;
+			final TypeElement type = (TypeElement) method.getEnclosingElement();
+			List<ExecutableElement> listeners = listenersByType.get(type);
+			if (listeners == null) {
+				listeners = new ArrayList<>();
+				listenersByType.put(type, listeners);
+			}
+			listeners.add(method);
+		}
+
+		for (Map.Entry<TypeElement, List<ExecutableElement>> entry : listenersByType.entrySet()) {
+			if (isValid(entry.getKey(), entry.getValue())) {
+				write(entry.getKey(), entry.getValue());
+			}
+		}
+		return true;
+	}
+
+	/** Report listeners the generated table cannot call. */
+	private boolean isValid(TypeElement type, List<ExecutableElement> methods) {
+		boolean valid = true;
+
+		for (Element enclosing = type; enclosing.getKind() != ElementKind.PACKAGE; enclosing = enclosing.getEnclosingElement()) {
+			if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+				error(type, "Classes with @Subscribe methods must not be private, or nested in private classes.");
+				valid = false;
+			}
+			if (!enclosing.getKind().isClass() && !enclosing.getKind().isInterface()) {
+				error(type, "@Subscribe methods are not supported in local or anonymous classes.");
+				valid = false;
+			}
+		}
+
+		final TypeMirror eventType = processingEnv.getElementUtils().getTypeElement(EVENT).asType();
+		for (ExecutableElement method : methods) {
+			if (method.getModifiers().contains(Modifier.PRIVATE)) {
+				error(method, "@Subscribe methods must not be private.");
+				valid = false;
+			}
+			if (method.getParameters().size() != 1) {
+				error(method, "Listener methods must have exactly one parameter.");
+				valid = false;
+				continue;
+			}
+			final TypeMirror parameterType = erasure(method.getParameters().get(0).asType());
+			if (parameterType.getKind() != TypeKind.DECLARED
+					|| !processingEnv.getTypeUtils().isAssignable(parameterType, eventType)
+					|| processingEnv.getTypeUtils().isSameType(parameterType, eventType)) {
+				error(method, "Listener method parameter must extend " + EVENT + ".");
+				valid = false;
+			}
+		}
+
+		return valid;
+	}
+
+	private void write(TypeElement type, List<ExecutableElement> methods) {
+		final PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+		final String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+		final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		final String tableName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + ListenerTable.SUFFIX;
+		final String typeName = erasure(type.asType()).toString();
+
+		try {
+			final JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? tableName : packageName + "." + tableName, type);
+			try (PrintWriter out = new PrintWriter(file.openWriter())) {
+				if (!packageName.isEmpty()) {
+					out.println("package " + packageName + ";");
+					out.println();
+				}
+				out.println("/** Listener table of {@link " + typeName + "}, generated by " + getClass().getSimpleName() + ". */");
+				out.println("public final class " + tableName + " implements " + LISTENER_TABLE + " {");
+				out.println();
+				out.println("\t@Override");
+				out.println("\tpublic void resolve(Object object, java.util.List<" + EVENT_LISTENER + "> listeners) {");
+				out.println("\t\tfinal " + typeName + " target = (" + typeName + ") object;");
+				for (ExecutableElement method : methods) {
+					final Subscribe subscribe = method.getAnnotation(Subscribe.class);
+					final String parameterName = erasure(method.getParameters().get(0).asType()).toString();
+					final String receiver = method.getModifiers().contains(Modifier.STATIC) ? typeName : "target";
+					out.println("\t\tlisteners.add(new " + EVENT_LISTENER + "(object, " + parameterName + ".class, "
+							+ subscribe.priority() + ", " + subscribe.ignoreCancelledEvents() + ", new " + LISTENER_INVOKER + "() {");
+					out.println("\t\t\t@Override");
+					out.println("\t\t\tpublic void invoke(" + EVENT + " event) {");
+					out.println("\t\t\t\t" + receiver + "." + method.getSimpleName() + "((" + parameterName + ") event);");
+					out.println("\t\t\t}");
+					out.println("\t\t}));");
+				}
+				out.println("\t}");
+				out.println("}");
+			}
+		} catch (IOException e) {
+			error(type, "Could not write listener table: " + e.getMessage());
+		}
+	}
+
+	private TypeMirror erasure(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type);
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+}
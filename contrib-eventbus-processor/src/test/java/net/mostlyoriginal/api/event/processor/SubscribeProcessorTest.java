@@ -0,0 +1,182 @@
+package net.mostlyoriginal.api.event.processor;
+
+import com.artemis.utils.reflect.Method;
+import net.mostlyoriginal.api.event.common.Cancellable;
+import net.mostlyoriginal.api.event.common.Event;
+import net.mostlyoriginal.api.event.common.EventListener;
+import net.mostlyoriginal.api.event.common.GeneratedListenerFinder;
+import net.mostlyoriginal.api.event.common.ListenerFinderStrategy;
+import net.mostlyoriginal.api.event.common.Subscribe;
+import net.mostlyoriginal.api.event.dispatcher.FastEventDispatcher;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test sources are compiled with the processor, so listeners in this class have generated tables.
+ */
+public class SubscribeProcessorTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	public static class BasicEvent implements Event {}
+
+	public static class CancellableEvent implements Event, Cancellable {
+		private boolean cancelled;
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public void setCancelled(boolean value) {
+			cancelled = value;
+		}
+	}
+
+	public static class SimpleEntitySystem {
+		public int basicCount;
+		public int cancellableCount;
+
+		@Subscribe
+		public void testListener(BasicEvent event) {
+			basicCount++;
+		}
+
+		@Subscribe(priority = 5, ignoreCancelledEvents = true)
+		void testListener2(CancellableEvent event) {
+			cancellableCount++;
+		}
+
+		public void notARegisteredListener(BasicEvent event) {
+		}
+	}
+
+	public static class NoListeners {
+	}
+
+	@Test
+	public void Resolve_GeneratedTable_ResolvesAllListeners() {
+		GeneratedListenerFinder finder = new GeneratedListenerFinder(null);
+		assertTrue(finder.hasTable(SimpleEntitySystem.class));
+
+		List<EventListener> listeners = finder.resolve(new SimpleEntitySystem());
+		assertEquals(2, listeners.size());
+		assertEquals(BasicEvent.class, listeners.get(0).getParameterType());
+		assertEquals(0, listeners.get(0).getPriority());
+		assertEquals(CancellableEvent.class, listeners.get(1).getParameterType());
+		assertEquals(5, listeners.get(1).getPriority());
+		assertTrue(listeners.get(1).isSkipCancelledEvents());
+		assertNull(listeners.get(1).getMethod());
+	}
+
+	@Test
+	public void Dispatch_GeneratedListeners_CallsMethods() {
+		SimpleEntitySystem system = new SimpleEntitySystem();
+		FastEventDispatcher dispatcher = new FastEventDispatcher();
+		for (EventListener listener : new GeneratedListenerFinder(null).resolve(system)) {
+			dispatcher.register(listener);
+		}
+
+		dispatcher.dispatch(new BasicEvent());
+		CancellableEvent cancelled = new CancellableEvent();
+		cancelled.setCancelled(true);
+		dispatcher.dispatch(cancelled);
+		dispatcher.dispatch(new CancellableEvent());
+
+		assertEquals(1, system.basicCount);
+		assertEquals(1, system.cancellableCount);
+	}
+
+	@Test
+	public void Resolve_NoTable_UsesFallback() {
+		final List<Object> resolved = new ArrayList<>();
+		GeneratedListenerFinder finder = new GeneratedListenerFinder(new ListenerFinderStrategy() {
+			@Override
+			public List<EventListener> resolve(Object o) {
+				resolved.add(o);
+				return Collections.emptyList();
+			}
+		});
+
+		NoListeners o = new NoListeners();
+		assertFalse(finder.hasTable(NoListeners.class));
+		assertTrue(finder.resolve(o).isEmpty());
+		assertEquals(Collections.<Object>singletonList(o), resolved);
+	}
+
+	@Test
+	public void Compile_PrivateListener_ReportsError() throws IOException, URISyntaxException {
+		List<Diagnostic<? extends JavaFileObject>> errors = compile("test.PrivateListener",
+				"package test;\n" +
+				"public class PrivateListener {\n" +
+				"  public static class MyEvent implements net.mostlyoriginal.api.event.common.Event {}\n" +
+				"  @net.mostlyoriginal.api.event.common.Subscribe\n" +
+				"  private void listener(MyEvent event) {}\n" +
+				"}\n");
+		assertEquals(1, errors.size());
+		assertEquals("@Subscribe methods must not be private.", errors.get(0).getMessage(null));
+	}
+
+	@Test
+	public void Compile_NonEventParameter_ReportsError() throws IOException, URISyntaxException {
+		List<Diagnostic<? extends JavaFileObject>> errors = compile("test.InvalidListener",
+				"package test;\n" +
+				"public class InvalidListener {\n" +
+				"  @net.mostlyoriginal.api.event.common.Subscribe\n" +
+				"  public void listener(String event) {}\n" +
+				"}\n");
+		assertEquals(1, errors.size());
+	}
+
+	/** Compile source with processor, return reported errors. */
+	private List<Diagnostic<? extends JavaFileObject>> compile(String className, final String source) throws IOException, URISyntaxException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		String classpath = location(Subscribe.class) + File.pathSeparator + location(Method.class);
+		File output = temporaryFolder.newFolder("processor-test");
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+				Arrays.asList("-classpath", classpath, "-d", output.getPath(), "-s", output.getPath()),
+				null, Collections.singletonList(file));
+		task.setProcessors(Collections.singletonList(new SubscribeProcessor()));
+		task.call();
+
+		List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+				errors.add(diagnostic);
+			}
+		}
+		return errors;
+	}
+
+	private static String location(Class type) throws URISyntaxException {
+		return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+	}
+}
@@ -0,0 +1,23 @@
+package net.mostlyoriginal.api.event.common;
+
+/**
+ * Implement for events that can be merged when queued more than once per frame.
+ *
+ * Events of the same class with equal keys are merged by coalescing dispatchers
+ * before delivery, so listeners are called once per key instead of once per event.
+ * Typical keys are entity ids, for events like damage or health changed.
+ *
+ * @param <T> event class, events only merge with events of their exact class.
+ * @see net.mostlyoriginal.api.event.dispatcher.CoalescingEventDispatcher
+ */
+public interface CoalescingEvent<T extends CoalescingEvent<T>> extends Event {
+
+	/** Events of the same class with equal keys are merged. Read at delivery, not at dispatch. */
+	int getCoalescingKey();
+
+	/**
+	 * Merge a later event with the same key into this one, for example by summing damage.
+	 * The later event is discarded afterwards.
+	 */
+	void merge(T later);
+}
@@ -0,0 +1,14 @@
+package net.mostlyoriginal.api.event.common;
+
+/**
+ * Implement for events that target a single entity, like hits or deaths.
+ *
+ * Besides listeners registered for all events, these are delivered to listeners
+ * registered for the target entity only, see {@link EventSystem#registerEventsFor(int, Object)}.
+ * Handlers no longer need to filter on entity id.
+ */
+public interface EntityEvent extends Event {
+
+	/** Id of the target entity. Read at delivery, not at dispatch. */
+	int getEntityId();
+}
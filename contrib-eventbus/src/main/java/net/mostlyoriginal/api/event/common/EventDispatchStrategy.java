@@ -16,6 +16,37 @@ public interface EventDispatchStrategy {
     /** Subscribe listener to events. */
     public void register( EventListener listener );
 
+    /**
+     * Unsubscribe listener from events.
+     *
+     * @return <code>true</code> if listener was registered.
+     */
+    public boolean unregister( EventListener listener );
+
+    /**
+     * Unsubscribe all listeners bound to owner.
+     *
+     * @param owner Object that contains the event handler methods, see {@link EventListener#getObject()}.
+     */
+    public void unregisterAll( Object owner );
+
+    /**
+     * Subscribe listener to {@link EntityEvent}s targeting entity.
+     *
+     * Other events are not delivered to entity listeners.
+     */
+    public void registerFor( int entityId, EventListener listener );
+
+    /**
+     * Unsubscribe listener from events targeting entity.
+     *
+     * @return <code>true</code> if listener was registered for entity.
+     */
+    public boolean unregisterFor( int entityId, EventListener listener );
+
+    /** Unsubscribe all listeners of entity, for example when it is deleted. */
+    public void unregisterAllFor( int entityId );
+
     /**
      * Dispatch event to registered listeners.
      */
@@ -32,4 +63,12 @@ public interface EventDispatchStrategy {
     /** Process your own business. */
     public void process( );
 
+    /**
+     * Whether the last {@link #process()} left events undelivered that were dispatched before it.
+     * Events dispatched since, for example by listeners, don't count.
+     *
+     * Callers that reuse event instances wait for <code>false</code> before reclaiming them.
+     */
+    public boolean hasCarryOver( );
+
 }
@@ -2,19 +2,32 @@ package net.mostlyoriginal.api.event.common;
 
 import com.artemis.utils.reflect.ClassReflection;
 import com.artemis.utils.reflect.Method;
+import com.artemis.utils.reflect.ReflectionException;
 import net.mostlyoriginal.api.utils.ReflectionHelper;
 
 /**
+ * Binds an event handler method to its object.
+ *
+ * Method calls go through a {@link ListenerInvoker}, created once at construction.
+ * On JVM methods are bound to method handles, with reflection as fallback
+ * for GWT and other platforms without java.lang.invoke.
+ *
  * @author Daan van Yperen
  * @todo GWT provide method support.
  */
 public class EventListener implements Comparable<EventListener> {
 
+	/** Name of fast invoker factory, resolved by name so GWT never sees it. */
+	private static final String FAST_INVOKER_FACTORY = "net.mostlyoriginal.api.event.common.MethodHandleListenerInvoker$Factory";
+	/** Null when not available, the factory returns null itself when the runtime lacks method handles. */
+	private static final ListenerInvoker.Factory fastInvokerFactory = findFastInvokerFactory();
+
     protected final Object object;
     protected final Method method;
 	protected final Class parameterType;
 	protected final int priority;
 	protected final boolean skipCancelledEvents;
+	protected final ListenerInvoker invoker;
 
 	/**
 	 * Instance event listener.
@@ -37,36 +50,92 @@ public class EventListener implements Comparable<EventListener> {
 	 * @param skipCancelledEvents if <code>true</code>, cancelled events skip this event listener. <code>false</code>
 	 */
     public EventListener(Object object, Method method, int priority, boolean skipCancelledEvents) {
+	    this(object, method, priority, skipCancelledEvents, null);
+    }
+
+	/**
+	 * Instance event listener with custom invoker.
+	 *
+	 * @param object Object that contains event handler method.
+	 * @param method Event handler method.
+	 * @param priority Precedence over other handlers. Higher values get called first.
+	 * @param skipCancelledEvents if <code>true</code>, cancelled events skip this event listener. <code>false</code>
+	 * @param invoker Calls method on object, or <code>null</code> to pick the fastest available.
+	 */
+    public EventListener(Object object, Method method, int priority, boolean skipCancelledEvents, ListenerInvoker invoker) {
 	    this.priority = priority;
 	    this.skipCancelledEvents = skipCancelledEvents;
 	    if (object == null) throw new NullPointerException("Object cannot be null.");
         if (method == null) throw new NullPointerException("Method cannot be null.");
         method.setAccessible(true);
         if ( method.getParameterTypes().length != 1 ) throw new IllegalArgumentException("Listener methods must have exactly one parameter.");
-	    this.parameterType = ReflectionHelper.getFirstParameterType(method);
-	    if ( parameterType == Event.class ) throw new IllegalArgumentException("Parameter class cannot be Event, must be subclass.");
-	    if ( !ClassReflection.isAssignableFrom(Event.class, parameterType)) throw new IllegalArgumentException("Invalid parameter class. Listener method parameter must extend "+ Event.class.getName()+".");
+	    this.parameterType = checkParameterType(ReflectionHelper.getFirstParameterType(method));
         this.object = object;
         this.method = method;
+	    this.invoker = invoker != null ? invoker : createInvoker(object, method);
     }
 
+	/**
+	 * Instance event listener without method, for listener tables generated at compile time.
+	 *
+	 * @param object Object that contains event handler method.
+	 * @param parameterType Type of event the handler method accepts.
+	 * @param priority Precedence over other handlers. Higher values get called first.
+	 * @param skipCancelledEvents if <code>true</code>, cancelled events skip this event listener. <code>false</code>
+	 * @param invoker Calls handler method on object.
+	 * @see ListenerTable
+	 */
+	public EventListener(Object object, Class parameterType, int priority, boolean skipCancelledEvents, ListenerInvoker invoker) {
+		this.priority = priority;
+		this.skipCancelledEvents = skipCancelledEvents;
+		if (object == null) throw new NullPointerException("Object cannot be null.");
+		if (parameterType == null) throw new NullPointerException("Parameter type cannot be null.");
+		if (invoker == null) throw new NullPointerException("Invoker cannot be null.");
+		this.parameterType = checkParameterType(parameterType);
+		this.object = object;
+		this.method = null;
+		this.invoker = invoker;
+	}
+
+	private static Class checkParameterType(Class parameterType) {
+		if ( parameterType == Event.class ) throw new IllegalArgumentException("Parameter class cannot be Event, must be subclass.");
+		if ( !ClassReflection.isAssignableFrom(Event.class, parameterType)) throw new IllegalArgumentException("Invalid parameter class. Listener method parameter must extend "+ Event.class.getName()+".");
+		return parameterType;
+	}
+
+	/** Bind method to the fastest available invoker. */
+	private static ListenerInvoker createInvoker(Object object, Method method) {
+		if (fastInvokerFactory != null) {
+			final ListenerInvoker invoker = fastInvokerFactory.create(object, method);
+			if (invoker != null) {
+				return invoker;
+			}
+		}
+		return new ReflectionListenerInvoker(object, method);
+	}
+
+	private static ListenerInvoker.Factory findFastInvokerFactory() {
+		try {
+			return (ListenerInvoker.Factory) ClassReflection.newInstance(ClassReflection.forName(FAST_INVOKER_FACTORY));
+		} catch (ReflectionException e) {
+			// not available on this platform.
+			return null;
+		}
+	}
+
     public void handle(Event event) {
         if (event == null) throw new NullPointerException("Event required.");
 
 	    if (skipCancelledEvents)
 	    {
-		    if ( ClassReflection.isInstance(Cancellable.class, event) && ((Cancellable)event).isCancelled() )
+		    if ( event instanceof Cancellable && ((Cancellable)event).isCancelled() )
 		    {
 			    // event can be cancelled, so do not submit!
 			    return;
 		    }
 	    }
 
-        try {
-            method.invoke(object, event);
-        } catch (Exception e) {
-            throw new RuntimeException("Could not call event.", e);
-        }
+	    invoker.invoke(event);
     }
 
 	/** Object that contains method. */
@@ -74,11 +143,16 @@ public class EventListener implements Comparable<EventListener> {
         return object;
     }
 
-	/** Method of listener. */
+	/** Method of listener, <code>null</code> for listeners from generated tables. */
     public Method getMethod() {
         return method;
     }
 
+	/** Invoker used to call method. */
+	public ListenerInvoker getInvoker() {
+		return invoker;
+	}
+
 	/** Type of method parameter. */
 	public Class getParameterType() {
 		return parameterType;
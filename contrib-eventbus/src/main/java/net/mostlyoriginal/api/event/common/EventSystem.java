@@ -1,7 +1,14 @@
 package net.mostlyoriginal.api.event.common;
 
+import com.artemis.Aspect;
 import com.artemis.BaseSystem;
+import com.artemis.EntitySubscription;
+import com.artemis.utils.Bag;
+import com.artemis.utils.IntBag;
+import com.artemis.utils.reflect.ClassReflection;
 import net.mostlyoriginal.api.event.dispatcher.FastEventDispatcher;
+import net.mostlyoriginal.api.event.dispatcher.PollingPooledEventDispatcher;
+import net.mostlyoriginal.api.event.dispatcher.RingBufferPooledEventDispatcher;
 
 import java.util.List;
 
@@ -17,6 +24,9 @@ public class EventSystem extends BaseSystem {
 
     private EventDispatchStrategy dispatcherStrategy;
     private ListenerFinderStrategy listenerFinderStrategy;
+    private final EventTimerWheel timers = new EventTimerWheel();
+    private final Bag<Event> expiredEvents = new Bag<>();
+    private boolean trackingDeletedEntities;
 
     /**
      * Init EventSystem with default strategies.
@@ -54,6 +64,51 @@ public class EventSystem extends BaseSystem {
         registerAll(resolveListeners(o));
     }
 
+    /** Unregister all listeners in passed object, for example a disabled system. */
+    public void unregisterEvents( Object o )
+    {
+        dispatcherStrategy.unregisterAll(o);
+    }
+
+    /**
+     * Register all @Subscribe listeners in passed object for {@link EntityEvent}s targeting entity.
+     *
+     * Entity listeners are dropped when the entity is deleted.
+     */
+    public void registerEventsFor( int entityId, Object o )
+    {
+        unregisterOnDelete();
+        for (EventListener listener : resolveListeners(o)) {
+            dispatcherStrategy.registerFor(entityId, listener);
+        }
+    }
+
+    /** Unregister all listeners for events targeting entity. */
+    public void unregisterEventsFor( int entityId )
+    {
+        dispatcherStrategy.unregisterAllFor(entityId);
+    }
+
+    /** Drop entity listeners on deletion, entity ids are reused. Subscribes on first use only. */
+    private void unregisterOnDelete()
+    {
+        if ( trackingDeletedEntities ) return;
+        trackingDeletedEntities = true;
+        world.getAspectSubscriptionManager().get(Aspect.all()).addSubscriptionListener(new EntitySubscription.SubscriptionListener() {
+            @Override
+            public void inserted(IntBag entities) {
+            }
+
+            @Override
+            public void removed(IntBag entities) {
+                final int[] ids = entities.getData();
+                for (int i = 0, s = entities.size(); i < s; i++) {
+                    dispatcherStrategy.unregisterAllFor(ids[i]);
+                }
+            }
+        });
+    }
+
     /**
      * Dispatch event to registered listeners.
      */
@@ -70,10 +125,64 @@ public class EventSystem extends BaseSystem {
 		return dispatcherStrategy.dispatch(eventType);
 	}
 
+    /**
+     * Dispatch event to registered listeners after delay, driven by world delta.
+     *
+     * Replaces scheduling events with entities. Due events are dispatched
+     * when this system processes, with a resolution of {@link EventTimerWheel#DEFAULT_TICK_DURATION}.
+     *
+     * Due events are handed to the dispatcher with {@link EventDispatchStrategy#dispatch(Event)}.
+     * Not supported by dispatchers that manage their own events, like
+     * {@link PollingPooledEventDispatcher} and {@link RingBufferPooledEventDispatcher}.
+     *
+     * @param delaySeconds seconds from now, dispatched next world tick at the earliest.
+     * @throws UnsupportedOperationException when the dispatcher manages its own events.
+     */
+	public void dispatchAfter( Event event, float delaySeconds )
+	{
+		checkDelayedDispatchSupported();
+		timers.schedule(event, delaySeconds);
+	}
+
+    /**
+     * Dispatch pooled event to registered listeners after delay, driven by world delta.
+     *
+     * The event is returned to the pool once delivered, do not hold on to it. Events carried
+     * over by the dispatcher, see {@link EventDispatchStrategy#hasCarryOver()}, are kept until it catches up.
+     * Same dispatcher restrictions as {@link #dispatchAfter(Event, float)}.
+     *
+     * @param delaySeconds seconds from now, dispatched next world tick at the earliest.
+     * @return event to initialize.
+     * @throws UnsupportedOperationException when the dispatcher manages its own events.
+     */
+	public <T extends Event> T dispatchAfter( Class<T> eventType, float delaySeconds )
+	{
+		checkDelayedDispatchSupported();
+		return timers.schedule(eventType, delaySeconds);
+	}
+
+    /** Fail at the call site, rather than when the event is due. */
+    private void checkDelayedDispatchSupported()
+    {
+        if ( dispatcherStrategy instanceof PollingPooledEventDispatcher || dispatcherStrategy instanceof RingBufferPooledEventDispatcher ) {
+            throw new UnsupportedOperationException(ClassReflection.getSimpleName(dispatcherStrategy.getClass()) + " manages its own events, cannot dispatch delayed events.");
+        }
+    }
+
 	@Override
 	protected void processSystem( )
 	{
+		timers.advance(world.delta, expiredEvents);
+		for (int i = 0, s = expiredEvents.size(); i < s; i++) {
+			dispatcherStrategy.dispatch(expiredEvents.get(i));
+		}
+		expiredEvents.clear();
 		dispatcherStrategy.process();
+
+		// pooled events are reused, only reclaim them once everything queued so far is delivered.
+		if ( !dispatcherStrategy.hasCarryOver() ) {
+			timers.freeExpired();
+		}
 	}
 
 	/** Register all listeners with the handler. */
@@ -0,0 +1,276 @@
+package net.mostlyoriginal.api.event.common;
+
+import com.artemis.utils.Bag;
+import net.mostlyoriginal.api.utils.pooling.PoolsCollection;
+
+/**
+ * <p>Hierarchical timer wheel for delayed events, driven by world delta.</p>
+ *
+ * <p>Time is divided in ticks of a fixed duration. Timers are kept in {@link #LEVELS} wheels
+ * of {@link #SLOTS} slots each, every level covering {@link #SLOTS} times the span of the level
+ * below. Scheduling appends to a slot, expiring takes a whole slot, timers in higher levels
+ * cascade down when the wheel below wraps around. Both are O(1) per timer. Timers further out
+ * than the wheel spans wait in the top level and cascade until due.</p>
+ *
+ * <p>Timers are stored in primitive arrays that only grow, so once warmed up scheduling
+ * pooled events with {@link #schedule(Class, float)} produces no garbage.</p>
+ *
+ * <p>Events expire at most one tick late, and never early beyond float rounding.
+ * Events due on the same tick expire in no particular order.</p>
+ *
+ * @see EventSystem#dispatchAfter(Event, float)
+ */
+public class EventTimerWheel {
+
+	/** Default tick duration, in seconds. */
+	public static final float DEFAULT_TICK_DURATION = 0.01f;
+
+	public static final int LEVELS = 4;
+	private static final int SLOT_BITS = 6;
+	public static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	/** Ticks covered by all levels together. */
+	private static final long SPAN = 1L << (LEVELS * SLOT_BITS);
+
+	private static final int NONE = -1;
+	/** Fraction of a tick to absorb rounding, delays are rarely a multiple of a float tick duration. */
+	private static final double TICK_EPSILON = 0.0001;
+
+	private final float tickDuration;
+	private final PoolsCollection pools = new PoolsCollection();
+
+	/** First and last timer per slot, by level * SLOTS + slot. */
+	private final int[] heads = new int[LEVELS * SLOTS];
+	private final int[] tails = new int[LEVELS * SLOTS];
+
+	/** Timers by index, unused timers are linked through next. */
+	private Event[] events;
+	private long[] dues;
+	private boolean[] pooled;
+	private int[] next;
+	private int freeTimer = NONE;
+
+	/** Pooled events expired since the last {@link #freeExpired()}. */
+	private final Bag<Event> expiredPooled = new Bag<>();
+
+	private double time;
+	private long tick;
+	private int size;
+
+	public EventTimerWheel() {
+		this(DEFAULT_TICK_DURATION);
+	}
+
+	/**
+	 * @param tickDuration resolution of the wheel in seconds.
+	 */
+	public EventTimerWheel(float tickDuration) {
+		if (!(tickDuration > 0)) throw new IllegalArgumentException("Tick duration must be positive.");
+		this.tickDuration = tickDuration;
+		for (int i = 0; i < heads.length; i++) {
+			heads[i] = tails[i] = NONE;
+		}
+		events = new Event[0];
+		dues = new long[0];
+		pooled = new boolean[0];
+		next = new int[0];
+		grow(64);
+	}
+
+	/**
+	 * Expire event after delay.
+	 *
+	 * @param delay seconds from now, the event expires on the next {@link #advance(float, Bag)} at the earliest.
+	 */
+	public void schedule(Event event, float delay) {
+		if (event == null) throw new NullPointerException("Event required.");
+		schedule(event, delay, false);
+	}
+
+	/**
+	 * Expire pooled event of type after delay. Once expired, the event is returned
+	 * to the pool by {@link #freeExpired()}.
+	 *
+	 * @param delay seconds from now, the event expires on the next {@link #advance(float, Bag)} at the earliest.
+	 * @return event to initialize. Do not hold on to it after delivery, it will be reused.
+	 */
+	public <T extends Event> T schedule(Class<T> type, float delay) {
+		final T event = pools.obtain(type);
+		schedule(event, delay, true);
+		return event;
+	}
+
+	private void schedule(Event event, float delay, boolean isPooled) {
+		if (!(delay >= 0)) throw new IllegalArgumentException("Delay cannot be negative.");
+		long due = (long) Math.ceil((time + delay) / tickDuration - TICK_EPSILON);
+		if (due <= tick) {
+			due = tick + 1;
+		}
+
+		if (freeTimer == NONE) {
+			grow(events.length * 2);
+		}
+		final int timer = freeTimer;
+		freeTimer = next[timer];
+
+		events[timer] = event;
+		dues[timer] = due;
+		pooled[timer] = isPooled;
+		place(timer);
+		size++;
+	}
+
+	/**
+	 * Advance time, collecting expired events in order of their due tick.
+	 *
+	 * @param delta seconds passed, typically world delta.
+	 * @param expired receives expired events.
+	 */
+	public void advance(float delta, Bag<Event> expired) {
+		time += delta;
+		final long target = (long) (time / tickDuration + TICK_EPSILON);
+		while (tick < target) {
+			if (size == 0) {
+				// nothing pending, slots are empty for any tick.
+				tick = target;
+				break;
+			}
+			tick++;
+			cascade();
+			expire(expired);
+		}
+	}
+
+	/**
+	 * Return pooled events expired so far to their pool.
+	 * Call once they are delivered, they will be reused.
+	 */
+	public void freeExpired() {
+		for (int i = 0, s = expiredPooled.size(); i < s; i++) {
+			pools.free(expiredPooled.get(i));
+		}
+		expiredPooled.clear();
+	}
+
+	/** Move timers of higher levels down, when the levels below wrapped around. */
+	private void cascade() {
+		int level = 0;
+		int index = (int) tick & SLOT_MASK;
+		while (index == 0 && ++level < LEVELS) {
+			index = (int) (tick >> (level * SLOT_BITS)) & SLOT_MASK;
+			final int slot = level * SLOTS + index;
+			int timer = heads[slot];
+			heads[slot] = tails[slot] = NONE;
+			while (timer != NONE) {
+				final int following = next[timer];
+				place(timer);
+				timer = following;
+			}
+		}
+	}
+
+	private void expire(Bag<Event> expired) {
+		final int slot = (int) tick & SLOT_MASK;
+		int timer = heads[slot];
+		heads[slot] = tails[slot] = NONE;
+		while (timer != NONE) {
+			final int following = next[timer];
+			if (dues[timer] > tick) {
+				// was beyond the span of the wheel, still waiting.
+				place(timer);
+			} else {
+				final Event event = events[timer];
+				expired.add(event);
+				if (pooled[timer]) {
+					expiredPooled.add(event);
+				}
+				release(timer);
+			}
+			timer = following;
+		}
+	}
+
+	/** Append timer to the slot of the lowest level that covers its due tick. */
+	private void place(int timer) {
+		long due = dues[timer];
+		long delta = due - tick;
+		if (delta >= SPAN) {
+			// park in top level, cascades down again until due.
+			delta = SPAN - 1;
+			due = tick + delta;
+		}
+		int level = 0;
+		while (delta >= 1L << ((level + 1) * SLOT_BITS)) {
+			level++;
+		}
+		final int slot = level * SLOTS + ((int) (due >> (level * SLOT_BITS)) & SLOT_MASK);
+
+		next[timer] = NONE;
+		if (heads[slot] == NONE) {
+			heads[slot] = timer;
+		} else {
+			next[tails[slot]] = timer;
+		}
+		tails[slot] = timer;
+	}
+
+	private void release(int timer) {
+		events[timer] = null;
+		next[timer] = freeTimer;
+		freeTimer = timer;
+		size--;
+	}
+
+	private void grow(int capacity) {
+		final int length = events.length;
+		final Event[] grownEvents = new Event[capacity];
+		final long[] grownDues = new long[capacity];
+		final boolean[] grownPooled = new boolean[capacity];
+		final int[] grownNext = new int[capacity];
+		System.arraycopy(events, 0, grownEvents, 0, length);
+		System.arraycopy(dues, 0, grownDues, 0, length);
+		System.arraycopy(pooled, 0, grownPooled, 0, length);
+		System.arraycopy(next, 0, grownNext, 0, length);
+		events = grownEvents;
+		dues = grownDues;
+		pooled = grownPooled;
+		next = grownNext;
+
+		// link new timers into the free list.
+		for (int i = capacity - 1; i >= length; i--) {
+			next[i] = freeTimer;
+			freeTimer = i;
+		}
+	}
+
+	/** Drop all pending timers, returning pooled events. */
+	public void clear() {
+		for (int i = 0; i < heads.length; i++) {
+			int timer = heads[i];
+			heads[i] = tails[i] = NONE;
+			while (timer != NONE) {
+				final int following = next[timer];
+				if (pooled[timer]) {
+					pools.free(events[timer]);
+				}
+				release(timer);
+				timer = following;
+			}
+		}
+	}
+
+	/** Number of pending timers. */
+	public int size() {
+		return size;
+	}
+
+	/** Seconds advanced since creation. */
+	public double getTime() {
+		return time;
+	}
+
+	/** Resolution of the wheel in seconds. */
+	public float getTickDuration() {
+		return tickDuration;
+	}
+}
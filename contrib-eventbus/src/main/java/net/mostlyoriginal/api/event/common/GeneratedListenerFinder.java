@@ -0,0 +1,83 @@
+package net.mostlyoriginal.api.event.common;
+
+import com.artemis.utils.reflect.ClassReflection;
+import com.artemis.utils.reflect.ReflectionException;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves listeners from {@link ListenerTable}s generated by the annotation processor.
+ *
+ * Tables are looked up once per class and cached, so registering many objects
+ * of the same class (or the same systems in many worlds) does not scan methods.
+ * Classes without a generated table are resolved with the fallback strategy.
+ *
+ * Add contrib-eventbus-processor to the compile classpath to generate tables.
+ *
+ * @see ListenerTable
+ */
+public class GeneratedListenerFinder implements ListenerFinderStrategy {
+
+	/** Marks classes without generated table. */
+	private static final ListenerTable MISSING = new ListenerTable() {
+		@Override
+		public void resolve(Object object, List<EventListener> listeners) {
+		}
+	};
+
+	private final ListenerFinderStrategy fallback;
+	private final Map<Class, ListenerTable> tables = new IdentityHashMap<>();
+
+	/**
+	 * Falls back to {@link SubscribeAnnotationFinder} for classes without table.
+	 */
+	public GeneratedListenerFinder() {
+		this(new SubscribeAnnotationFinder());
+	}
+
+	/**
+	 * @param fallback Strategy for classes without generated table, or <code>null</code> to ignore those classes.
+	 */
+	public GeneratedListenerFinder(ListenerFinderStrategy fallback) {
+		this.fallback = fallback;
+	}
+
+	@Override
+	/** Find all listeners in o based on its generated table and return as EventListeners. */
+	public List<EventListener> resolve(Object o) {
+		final ListenerTable table = getTable(o.getClass());
+		if (table == MISSING) {
+			return fallback != null ? fallback.resolve(o) : new ArrayList<EventListener>();
+		}
+
+		final ArrayList<EventListener> listeners = new ArrayList<>();
+		table.resolve(o, listeners);
+		return listeners;
+	}
+
+	/** @return <code>true</code> if a table was generated for type. */
+	public boolean hasTable(Class type) {
+		return getTable(type) != MISSING;
+	}
+
+	private ListenerTable getTable(Class type) {
+		ListenerTable table = tables.get(type);
+		if (table == null) {
+			table = findTable(type);
+			tables.put(type, table);
+		}
+		return table;
+	}
+
+	private static ListenerTable findTable(Class type) {
+		try {
+			return (ListenerTable) ClassReflection.newInstance(ClassReflection.forName(type.getName() + ListenerTable.SUFFIX));
+		} catch (ReflectionException e) {
+			// no @Subscribe methods, or processor not on compile path.
+			return MISSING;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package net.mostlyoriginal.api.event.common;
+
+import com.artemis.utils.reflect.Method;
+
+/**
+ * Calls a single listener method, bound to the object that declares it.
+ *
+ * Created once per listener at registration, so delivery does not have
+ * to resolve anything per event.
+ *
+ * @see EventListener
+ */
+public interface ListenerInvoker {
+
+	/**
+	 * Call listener method with event.
+	 *
+	 * @throws RuntimeException wrapping any failure of the listener.
+	 */
+	void invoke(Event event);
+
+	/**
+	 * Creates invokers for listener methods.
+	 */
+	interface Factory {
+
+		/**
+		 * @param object Object that contains event handler method.
+		 * @param method Event handler method.
+		 * @return invoker bound to object, or <code>null</code> if method cannot be bound.
+		 */
+		ListenerInvoker create(Object object, Method method);
+	}
+}
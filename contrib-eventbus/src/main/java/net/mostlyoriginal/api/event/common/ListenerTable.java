@@ -0,0 +1,27 @@
+package net.mostlyoriginal.api.event.common;
+
+import java.util.List;
+
+/**
+ * Listeners of a single class, generated at compile time.
+ *
+ * The contrib-eventbus-processor annotation processor generates a table for
+ * every class with {@link Subscribe} methods, named after the binary name of
+ * the class followed by {@link #SUFFIX}. Tables call handler methods directly,
+ * no reflection is involved.
+ *
+ * @see GeneratedListenerFinder
+ */
+public interface ListenerTable {
+
+	/** Suffix appended to the binary class name to get the name of its table. */
+	String SUFFIX = "$$ListenerTable";
+
+	/**
+	 * Add all listeners declared by class of object.
+	 *
+	 * @param object Instance of the class this table was generated for.
+	 * @param listeners List to add listeners to.
+	 */
+	void resolve(Object object, List<EventListener> listeners);
+}
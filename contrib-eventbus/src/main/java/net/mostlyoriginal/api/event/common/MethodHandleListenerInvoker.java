@@ -0,0 +1,72 @@
+package net.mostlyoriginal.api.event.common;
+
+import com.artemis.utils.reflect.Method;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Calls listener method through a method handle, bound to the listener object
+ * and adapted to <code>(Event)void</code> once, at registration.
+ *
+ * Skips the per call argument array, access checks and result boxing of
+ * reflective calls. JVM only, excluded from the GWT module. {@link EventListener}
+ * looks up the {@link Factory} by name and falls back to {@link ReflectionListenerInvoker}
+ * when it is not available.
+ */
+public class MethodHandleListenerInvoker implements ListenerInvoker {
+
+	private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Event.class);
+
+	private final MethodHandle handle;
+
+	public MethodHandleListenerInvoker(MethodHandle handle) {
+		this.handle = handle;
+	}
+
+	@Override
+	public void invoke(Event event) {
+		try {
+			handle.invokeExact(event);
+		} catch (Error e) {
+			// let OutOfMemoryError and the like through as is.
+			throw e;
+		} catch (Throwable t) {
+			throw new RuntimeException("Could not call event.", t);
+		}
+	}
+
+	/**
+	 * Binds listener methods to method handles.
+	 *
+	 * Disables itself when <code>java.lang.invoke</code> turns out to be missing,
+	 * for example on older Android. Loading the factory itself does not touch
+	 * <code>java.lang.invoke</code>, so {@link EventListener} only has to handle it not being found.
+	 */
+	public static class Factory implements ListenerInvoker.Factory {
+
+		private volatile boolean unavailable;
+
+		@Override
+		public ListenerInvoker create(Object object, Method method) {
+			if (unavailable) {
+				return null;
+			}
+			try {
+				final java.lang.reflect.Method target = method.getDeclaringClass().getDeclaredMethod(method.getName(), method.getParameterTypes());
+				// listeners are often private or declared in non public classes.
+				target.setAccessible(true);
+				final MethodHandle handle = MethodHandles.lookup().unreflect(target).bindTo(object).asType(HANDLER_TYPE);
+				return new MethodHandleListenerInvoker(handle);
+			} catch (Exception e) {
+				// security manager or exotic method, caller falls back to reflection.
+				return null;
+			} catch (LinkageError e) {
+				// no method handles on this runtime, don't try again.
+				unavailable = true;
+				return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package net.mostlyoriginal.api.event.common;
+
+import com.artemis.utils.reflect.Method;
+
+/**
+ * Calls listener method through reflection.
+ *
+ * Works on all platforms, used where faster invokers are not available, like GWT.
+ *
+ * @see MethodHandleListenerInvoker
+ */
+public class ReflectionListenerInvoker implements ListenerInvoker {
+
+	protected final Object object;
+	protected final Method method;
+
+	/**
+	 * @param object Object that contains event handler method.
+	 * @param method Event handler method.
+	 */
+	public ReflectionListenerInvoker(Object object, Method method) {
+		this.object = object;
+		this.method = method;
+		method.setAccessible(true);
+	}
+
+	@Override
+	public void invoke(Event event) {
+		try {
+			method.invoke(object, event);
+		} catch (Exception e) {
+			throw new RuntimeException("Could not call event.", e);
+		}
+	}
+}
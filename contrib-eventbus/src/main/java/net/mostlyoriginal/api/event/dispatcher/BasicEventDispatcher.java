@@ -4,10 +4,10 @@ import com.artemis.utils.Bag;
 import com.artemis.utils.ImmutableBag;
 import com.artemis.utils.reflect.ClassReflection;
 
+import net.mostlyoriginal.api.event.common.EntityEvent;
 import net.mostlyoriginal.api.event.common.Event;
 import net.mostlyoriginal.api.event.common.EventDispatchStrategy;
 import net.mostlyoriginal.api.event.common.EventListener;
-import net.mostlyoriginal.api.utils.ReflectionHelper;
 import net.mostlyoriginal.api.utils.BagUtils;
 
 /**
@@ -22,6 +22,8 @@ import net.mostlyoriginal.api.utils.BagUtils;
 public class BasicEventDispatcher implements EventDispatchStrategy {
 
     final Bag<EventListener> listeners = new Bag<>(128);
+    /** Entity scoped listeners by entity id. */
+    final Bag<Bag<EventListener>> entityListeners = new Bag<>();
 	private boolean sortDirty = false;
 
 	/** Subscribe listener to events. */
@@ -34,6 +36,65 @@ public class BasicEventDispatcher implements EventDispatchStrategy {
         }
     }
 
+	/** Unsubscribe listener from events. */
+	@Override
+	public boolean unregister( EventListener listener )
+	{
+		return BagUtils.removeOrdered(listeners, listener);
+	}
+
+	/** Unsubscribe all listeners of owner. */
+	@Override
+	public void unregisterAll( Object owner )
+	{
+		for (int i = listeners.size() - 1; i >= 0; i--) {
+			final EventListener listener = listeners.get(i);
+			if ( listener.getObject() == owner ) {
+				BagUtils.removeOrdered(listeners, listener);
+			}
+		}
+		for (int e = 0, s = entityListeners.size(); e < s; e++) {
+			final Bag<EventListener> forEntity = entityListeners.get(e);
+			for (int i = forEntity != null ? forEntity.size() - 1 : -1; i >= 0; i--) {
+				if ( forEntity.get(i).getObject() == owner ) {
+					BagUtils.removeOrdered(forEntity, forEntity.get(i));
+				}
+			}
+		}
+	}
+
+	/** Subscribe listener to events targeting entity. */
+	@Override
+	public void registerFor( int entityId, EventListener listener )
+	{
+		if ( entityId < 0 ) throw new IllegalArgumentException("Entity id cannot be negative.");
+		Bag<EventListener> forEntity = entityListeners.safeGet(entityId);
+		if ( forEntity == null ) {
+			forEntity = new Bag<>();
+			entityListeners.set(entityId, forEntity);
+		}
+		if ( !forEntity.contains(listener) ) {
+			forEntity.add(listener);
+		}
+	}
+
+	/** Unsubscribe listener from events targeting entity. */
+	@Override
+	public boolean unregisterFor( int entityId, EventListener listener )
+	{
+		final Bag<EventListener> forEntity = entityId >= 0 ? entityListeners.safeGet(entityId) : null;
+		return forEntity != null && BagUtils.removeOrdered(forEntity, listener);
+	}
+
+	/** Unsubscribe all listeners of entity. */
+	@Override
+	public void unregisterAllFor( int entityId )
+	{
+		if ( entityId >= 0 && entityId < entityListeners.size() ) {
+			entityListeners.set(entityId, null);
+		}
+	}
+
     /**
      * Dispatch event to registered listeners.
      * Events are called on the call stack, avoid deeply nested or circular event calls.
@@ -67,6 +128,12 @@ public class BasicEventDispatcher implements EventDispatchStrategy {
 		// not interested in this stuff
 	}
 
+	/** Delivers on the call stack, never carries over. */
+	@Override
+	public boolean hasCarryOver() {
+		return false;
+	}
+
     /** Get listeners that are subscribed to the event. */
     protected ImmutableBag<EventListener> getRelevantListeners(Event event) {
 
@@ -89,13 +156,25 @@ public class BasicEventDispatcher implements EventDispatchStrategy {
             }
         }
 
+	    // entity listeners go after listeners for all entities, the sort keeps that on equal priority.
+	    if ( event instanceof EntityEvent ) {
+		    final int entityId = ((EntityEvent) event).getEntityId();
+		    final Bag<EventListener> forEntity = entityId >= 0 ? entityListeners.safeGet(entityId) : null;
+		    for (int i = 0, s = forEntity != null ? forEntity.size() : 0; i < s; i++) {
+			    if ( canHandle(forEntity.get(i), event) ) {
+				    relevantListeners.add(forEntity.get(i));
+			    }
+		    }
+		    BagUtils.sort(relevantListeners);
+	    }
+
 	    return relevantListeners;
     }
 
 
     /** Check if listener can handle event. */
     public boolean canHandle(EventListener listener, Event event) {
-        final Class listenerEventType = ReflectionHelper.getFirstParameterType(listener.getMethod());
+        final Class listenerEventType = listener.getParameterType();
         return listenerEventType != null && ClassReflection.isAssignableFrom(listenerEventType, event.getClass());
     }
 }
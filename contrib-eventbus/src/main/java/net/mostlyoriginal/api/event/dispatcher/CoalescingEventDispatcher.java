@@ -0,0 +1,165 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import com.artemis.utils.Bag;
+import com.artemis.utils.IntBag;
+import com.artemis.utils.reflect.ClassReflection;
+import com.artemis.utils.reflect.ReflectionException;
+import net.mostlyoriginal.api.event.common.CoalescingEvent;
+import net.mostlyoriginal.api.event.common.Event;
+
+/**
+ * Polling event dispatcher that merges queued {@link CoalescingEvent}s before delivery.
+ *
+ * On {@link #process()}, events of the same class and key are merged into the first
+ * one queued, which is delivered at its original position in the queue. Listener calls
+ * scale with the number of distinct keys instead of the number of dispatched events.
+ * Other events are delivered unchanged, in dispatch order.
+ *
+ * Duplicates are found with a primitive index on event type id and key, reused between frames.
+ *
+ * @see PollingEventDispatcher
+ */
+public class CoalescingEventDispatcher extends FastEventDispatcher {
+
+	/** Events pending delivery. */
+	private Bag<Event> pending = new Bag<>();
+	/** Events being delivered. */
+	private Bag<Event> delivering = new Bag<>();
+
+	private final KeyIndex index = new KeyIndex();
+	private long coalescedCount;
+
+	/**
+	 * Merge and deliver queued events.
+	 *
+	 * Events dispatched by listeners are delivered on the next call.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void process() {
+		final Bag<Event> queue = pending;
+		pending = delivering;
+		delivering = queue;
+
+		final Object[] events = queue.getData();
+		final int size = queue.size();
+
+		// merge duplicates into the first event with their key.
+		for (int i = 0; i < size; i++) {
+			if (events[i] instanceof CoalescingEvent) {
+				final CoalescingEvent event = (CoalescingEvent) events[i];
+				final long key = ((long) getEventTypeId(event.getClass()) << 32) | (event.getCoalescingKey() & 0xFFFFFFFFL);
+				final int first = index.putIfAbsent(key, i);
+				if (first != -1) {
+					((CoalescingEvent) events[first]).merge(event);
+					events[i] = null;
+					coalescedCount++;
+				}
+			}
+		}
+		index.clear();
+
+		for (int i = 0; i < size; i++) {
+			final Event event = (Event) events[i];
+			if (event != null) {
+				super.dispatch(event);
+			}
+		}
+
+		queue.clear();
+	}
+
+	/** Queue event for delivery on next {@link #process()}. */
+	@Override
+	public void dispatch(Event event) {
+		if (event == null) throw new NullPointerException("Event required.");
+		pending.add(event);
+	}
+
+	@Override
+	public <T extends Event> T dispatch(Class<T> type) {
+		T event;
+		try {
+			event = ClassReflection.newInstance(type);
+		} catch (ReflectionException e) {
+			String error = "Couldn't instantiate object of type " + type.getName();
+			throw new RuntimeException(error, e);
+		}
+		dispatch(event);
+		return event;
+	}
+
+	/** Number of events pending delivery, before merging. */
+	public int size() {
+		return pending.size();
+	}
+
+	/** Number of events merged into earlier events since creation. */
+	public long getCoalescedCount() {
+		return coalescedCount;
+	}
+
+	/**
+	 * Open addressing map of long key to queue position, without boxing.
+	 * Remembers used slots so clearing costs the number of entries, not the capacity.
+	 */
+	private static class KeyIndex {
+		private long[] keys = new long[64];
+		/** Queue position + 1, 0 marks a free slot. */
+		private int[] values = new int[64];
+		private int mask = 63;
+		private final IntBag used = new IntBag();
+
+		/**
+		 * @return position stored for key, or -1 if key was absent and position is stored.
+		 */
+		int putIfAbsent(long key, int position) {
+			if ((used.size() + 1) * 2 > keys.length) {
+				grow();
+			}
+			int slot = hash(key) & mask;
+			while (values[slot] != 0) {
+				if (keys[slot] == key) {
+					return values[slot] - 1;
+				}
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			values[slot] = position + 1;
+			used.add(slot);
+			return -1;
+		}
+
+		void clear() {
+			final int[] slots = used.getData();
+			for (int i = 0, s = used.size(); i < s; i++) {
+				values[slots[i]] = 0;
+			}
+			used.setSize(0);
+		}
+
+		private void grow() {
+			final long[] oldKeys = keys;
+			final int[] oldValues = values;
+			final int[] oldSlots = used.getData();
+			final int count = used.size();
+			keys = new long[oldKeys.length * 2];
+			values = new int[oldValues.length * 2];
+			mask = keys.length - 1;
+			final IntBag oldUsed = new IntBag(count);
+			for (int i = 0; i < count; i++) {
+				oldUsed.add(oldSlots[i]);
+			}
+			used.setSize(0);
+			for (int i = 0; i < count; i++) {
+				final int oldSlot = oldUsed.get(i);
+				putIfAbsent(oldKeys[oldSlot], oldValues[oldSlot] - 1);
+			}
+		}
+
+		private static int hash(long key) {
+			final long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h >>> 32);
+		}
+	}
+}
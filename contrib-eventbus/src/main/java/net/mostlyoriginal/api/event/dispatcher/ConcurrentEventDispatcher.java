@@ -0,0 +1,224 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import com.artemis.utils.reflect.ClassReflection;
+import com.artemis.utils.reflect.ReflectionException;
+import net.mostlyoriginal.api.event.common.Event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Polling event dispatcher that accepts events from any thread.
+ *
+ * Events are posted to a bounded lock-free multi-producer single-consumer
+ * ring buffer and delivered by {@link #process()} on the world thread, in the
+ * order they were posted. Posting does not allocate, what happens when the
+ * buffer is full is decided by the {@link OverflowPolicy}.
+ *
+ * Post events fully initialized with {@link #dispatch(Event)}, the event
+ * belongs to the world thread as soon as it is posted. {@link #dispatch(Class)}
+ * and listener registration are only safe on the world thread.
+ *
+ * The world thread is the thread that created the dispatcher, until
+ * {@link #process()} runs or {@link #setWorldThread(Thread)} says otherwise.
+ *
+ * JVM only, excluded from the GWT module.
+ */
+public class ConcurrentEventDispatcher extends FastEventDispatcher {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/** What to do when an event is posted to a full queue. */
+	public enum OverflowPolicy {
+		/** Wait until the world thread makes room. Posting from the world thread fails instead, it would wait forever. */
+		BLOCK,
+		/** Discard the posted event and count it, see {@link #getDroppedCount()}. */
+		DROP,
+		/** Throw {@link IllegalStateException}. */
+		FAIL
+	}
+
+	private final OverflowPolicy overflowPolicy;
+	private final Event[] buffer;
+	/**
+	 * Per slot sequence number. Equals the position when the slot is free for
+	 * that position, position + 1 once the event at that position is published.
+	 */
+	private final AtomicLongArray sequence;
+	private final int mask;
+
+	/** Next position to claim by producers. */
+	private final AtomicLong tail = new AtomicLong();
+	/** Next position to deliver, only written by the world thread. */
+	private volatile long head;
+	private final AtomicLong dropped = new AtomicLong();
+	/** Whether the last process() stopped at a claimed but unpublished slot. */
+	private boolean carryOver;
+	private volatile Thread worldThread;
+
+	/**
+	 * Dispatcher with {@link #DEFAULT_CAPACITY} that blocks posting threads when full.
+	 */
+	public ConcurrentEventDispatcher() {
+		this(DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * @param capacity maximum number of pending events, rounded up to a power of two, at least 2.
+	 * @param overflowPolicy what to do when posting to a full queue.
+	 */
+	public ConcurrentEventDispatcher(int capacity, OverflowPolicy overflowPolicy) {
+		if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive.");
+		if (capacity > 1 << 30) throw new IllegalArgumentException("Capacity too large.");
+		if (overflowPolicy == null) throw new NullPointerException("Overflow policy cannot be null.");
+		// a single slot cannot tell published from free, sequence numbers would overlap.
+		int size = 2;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.overflowPolicy = overflowPolicy;
+		// usually created during world setup, so systems posting in initialize() fail instead of blocking.
+		this.worldThread = Thread.currentThread();
+		this.buffer = new Event[size];
+		this.sequence = new AtomicLongArray(size);
+		this.mask = size - 1;
+		for (int i = 0; i < size; i++) {
+			sequence.set(i, i);
+		}
+	}
+
+	/**
+	 * Deliver pending events on the calling thread.
+	 *
+	 * Delivers events posted before this call, events posted by listeners
+	 * are delivered on the next call.
+	 */
+	@Override
+	public void process() {
+		worldThread = Thread.currentThread();
+
+		final long end = tail.get();
+		long position = head;
+		carryOver = false;
+		while (position < end) {
+			final int index = (int) position & mask;
+			if (sequence.get(index) != position + 1) {
+				// claimed but not yet published, keep order and pick it up next time.
+				carryOver = true;
+				break;
+			}
+			final Event event = buffer[index];
+			buffer[index] = null;
+			// hand slot back to producers for the next lap.
+			sequence.lazySet(index, position + buffer.length);
+			head = ++position;
+
+			super.dispatch(event);
+		}
+	}
+
+	/**
+	 * Post event for delivery on next {@link #process()}. Safe from any thread.
+	 *
+	 * @throws IllegalStateException when queue is full and policy is {@link OverflowPolicy#FAIL},
+	 * or {@link OverflowPolicy#BLOCK} and called from the world thread.
+	 */
+	@Override
+	public void dispatch(Event event) {
+		if (event == null) throw new NullPointerException("Event required.");
+		while (!offer(event)) {
+			switch (overflowPolicy) {
+				case DROP:
+					dropped.incrementAndGet();
+					return;
+				case FAIL:
+					throw new IllegalStateException("Event queue full, capacity " + buffer.length + ".");
+				case BLOCK:
+					if (Thread.currentThread() == worldThread) {
+						throw new IllegalStateException("Event queue full, cannot block the world thread.");
+					}
+					LockSupport.parkNanos(1000);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Post event for delivery on next {@link #process()} if there is room. Safe from any thread.
+	 *
+	 * @return <code>true</code> if event was queued, <code>false</code> if queue is full.
+	 */
+	public boolean offer(Event event) {
+		if (event == null) throw new NullPointerException("Event required.");
+		while (true) {
+			final long position = tail.get();
+			final int index = (int) position & mask;
+			final long available = sequence.get(index) - position;
+			if (available == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					buffer[index] = event;
+					// publish, world thread reads the event after seeing this.
+					sequence.set(index, position + 1);
+					return true;
+				}
+			} else if (available < 0) {
+				// slot still holds an event from the previous lap.
+				return false;
+			}
+			// lost race to another producer, retry with new tail.
+		}
+	}
+
+	/**
+	 * Queue an event of given type. Only safe on the world thread,
+	 * since the returned event is already visible to {@link #process()}.
+	 */
+	@Override
+	public <T extends Event> T dispatch(Class<T> type) {
+		T event;
+		try {
+			event = ClassReflection.newInstance(type);
+		} catch (ReflectionException e) {
+			String error = "Couldn't instantiate object of type " + type.getName();
+			throw new RuntimeException(error, e);
+		}
+		dispatch(event);
+		return event;
+	}
+
+	/**
+	 * Thread that calls {@link #process()}, posting from it to a full queue with
+	 * {@link OverflowPolicy#BLOCK} fails rather than waiting forever.
+	 * Only needed when the dispatcher is created on another thread.
+	 */
+	public void setWorldThread(Thread worldThread) {
+		if (worldThread == null) throw new NullPointerException("World thread required.");
+		this.worldThread = worldThread;
+	}
+
+	/** Whether the last {@link #process()} stopped at an event another thread had not finished posting. */
+	@Override
+	public boolean hasCarryOver() {
+		return carryOver;
+	}
+
+	/** Number of events pending delivery, approximate while other threads post. */
+	public int size() {
+		return (int) Math.max(0, tail.get() - head);
+	}
+
+	/** Maximum number of pending events. */
+	public int getCapacity() {
+		return buffer.length;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/** Number of events discarded by {@link OverflowPolicy#DROP} since creation. */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+}
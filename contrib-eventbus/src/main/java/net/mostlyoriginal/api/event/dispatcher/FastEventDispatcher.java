@@ -1,13 +1,17 @@
 package net.mostlyoriginal.api.event.dispatcher;
 
 import com.artemis.utils.Bag;
+import com.artemis.utils.IntBag;
+import com.artemis.utils.reflect.ClassReflection;
 
+import net.mostlyoriginal.api.event.common.EntityEvent;
 import net.mostlyoriginal.api.event.common.Event;
 import net.mostlyoriginal.api.event.common.EventDispatchStrategy;
 import net.mostlyoriginal.api.event.common.EventListener;
 import net.mostlyoriginal.api.utils.ClassHierarchy;
 import net.mostlyoriginal.api.utils.BagUtils;
 
+import java.util.BitSet;
 import java.util.IdentityHashMap;
 
 /**
@@ -24,8 +28,30 @@ public class FastEventDispatcher implements EventDispatchStrategy {
 	/** Listeners of exact event class. Excludes superclasses. */
 	final IdentityHashMap<Class<?>, Bag<EventListener>> listenerCache = new IdentityHashMap<>();
 
-	/** Listeners flattened to include full hierarchy per calling event. */
-	final IdentityHashMap<Class<?>, Bag<EventListener>> hierarchicalListenerCache = new IdentityHashMap<>();
+	/** Dense id per dispatched event class, assigned at first dispatch. */
+	final IdentityHashMap<Class<?>, Integer> eventTypeIds = new IdentityHashMap<>();
+
+	/** Dispatched event classes by id. */
+	final Bag<Class<?>> eventTypes = new Bag<>();
+
+	/** Listeners flattened to include full hierarchy, sorted by priority, by event class id. */
+	final Bag<Bag<EventListener>> hierarchicalListeners = new Bag<>();
+
+	/** Listeners by the object that declares them, for {@link #unregisterAll(Object)}. */
+	final IdentityHashMap<Object, Bag<EventListener>> ownerListeners = new IdentityHashMap<>();
+
+	/** Entity scoped listeners, sorted by priority, by entity id. */
+	final Bag<Bag<EventListener>> entityListeners = new Bag<>();
+
+	/** Entity ids by the object that declares entity scoped listeners, for {@link #unregisterAll(Object)}. */
+	final IdentityHashMap<Object, IntBag> ownerEntities = new IdentityHashMap<>();
+
+	/** Ids of event classes that implement {@link EntityEvent}, resolved once per class. */
+	final BitSet entityEventTypes = new BitSet();
+
+	/** Last resolved event class, skips the id lookup for runs of the same event. */
+	private Class<?> lastEventType;
+	private int lastEventTypeId;
 
 	@Override
 	public void register(EventListener listener) {
@@ -35,16 +61,186 @@ public class FastEventDispatcher implements EventDispatchStrategy {
 		Bag<EventListener> listenersFor = getListenersFor(listener.getParameterType(), true);
 		if ( !listenersFor.contains(listener)) {
 			listenersFor.add(listener);
-			// the hierarchical cache is now out of date. purrrrrrrrge!
-			invalidateHierarchicalCache();
+			getOwnerListeners(listener.getObject()).add(listener);
+			updateHierarchicalListeners(listener.getParameterType());
+		}
+
+	}
+
+	@Override
+	public boolean unregister(EventListener listener) {
+		if ( listener == null ) throw new NullPointerException("Listener required.");
+
+		final Bag<EventListener> listenersFor = getListenersFor(listener.getParameterType(), false);
+		// keep registration order, it decides order of listeners with equal priority.
+		if ( listenersFor == null || !BagUtils.removeOrdered(listenersFor, listener) ) {
+			return false;
+		}
+
+		final Bag<EventListener> owned = ownerListeners.get(listener.getObject());
+		owned.remove(listener);
+		if ( owned.isEmpty() ) {
+			ownerListeners.remove(listener.getObject());
+		}
+
+		updateHierarchicalListeners(listener.getParameterType());
+		return true;
+	}
+
+	@Override
+	public void unregisterAll(Object owner) {
+		final Bag<EventListener> owned = ownerListeners.get(owner);
+		while ( owned != null && !owned.isEmpty() ) {
+			unregister(owned.get(owned.size() - 1));
+		}
+
+		final IntBag entityIds = ownerEntities.remove(owner);
+		if ( entityIds != null ) {
+			for (int i = 0, s = entityIds.size(); i < s; i++) {
+				final Bag<EventListener> listeners = entityListeners.safeGet(entityIds.get(i));
+				if ( listeners != null ) {
+					entityListeners.set(entityIds.get(i), withoutOwner(listeners, owner));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Subscribe listener to {@link EntityEvent}s targeting entity.
+	 *
+	 * Entity listeners are indexed by entity id, delivery only visits listeners of the target entity.
+	 */
+	@Override
+	public void registerFor(int entityId, EventListener listener) {
+		if ( listener == null ) throw new NullPointerException("Listener required.");
+		if ( entityId < 0 ) throw new IllegalArgumentException("Entity id cannot be negative.");
+
+		final Bag<EventListener> listeners = entityListeners.safeGet(entityId);
+		if ( listeners != null && listeners.contains(listener) ) {
+			return;
+		}
+
+		// copy, so dispatches in progress are not affected.
+		final Bag<EventListener> updated = new Bag<>(listeners != null ? listeners.size() + 1 : 4);
+		if ( listeners != null ) {
+			updated.addAll(listeners);
+		}
+		updated.add(listener);
+		BagUtils.sort(updated);
+		entityListeners.set(entityId, updated);
+
+		IntBag entityIds = ownerEntities.get(listener.getObject());
+		if ( entityIds == null ) {
+			entityIds = new IntBag(4);
+			ownerEntities.put(listener.getObject(), entityIds);
+		}
+		entityIds.add(entityId);
+	}
+
+	@Override
+	public boolean unregisterFor(int entityId, EventListener listener) {
+		if ( listener == null ) throw new NullPointerException("Listener required.");
+
+		final Bag<EventListener> listeners = entityId >= 0 ? entityListeners.safeGet(entityId) : null;
+		if ( listeners == null || !listeners.contains(listener) ) {
+			return false;
+		}
+
+		final Bag<EventListener> updated = new Bag<>(listeners.size());
+		for (int i = 0, s = listeners.size(); i < s; i++) {
+			if ( listeners.get(i) != listener ) {
+				updated.add(listeners.get(i));
+			}
+		}
+		entityListeners.set(entityId, updated.isEmpty() ? null : updated);
+		forgetOwnerEntity(listener.getObject(), entityId);
+		return true;
+	}
+
+	@Override
+	public void unregisterAllFor(int entityId) {
+		final Bag<EventListener> listeners = entityId >= 0 ? entityListeners.safeGet(entityId) : null;
+		if ( listeners == null ) {
+			return;
+		}
+
+		entityListeners.set(entityId, null);
+		for (int i = 0, s = listeners.size(); i < s; i++) {
+			forgetOwnerEntity(listeners.get(i).getObject(), entityId);
 		}
+	}
+
+	/** Copy of listeners without those declared by owner, <code>null</code> if none remain. */
+	private Bag<EventListener> withoutOwner(Bag<EventListener> listeners, Object owner) {
+		final Bag<EventListener> remaining = new Bag<>(listeners.size());
+		for (int i = 0, s = listeners.size(); i < s; i++) {
+			if ( listeners.get(i).getObject() != owner ) {
+				remaining.add(listeners.get(i));
+			}
+		}
+		return remaining.isEmpty() ? null : remaining;
+	}
 
+	private void forgetOwnerEntity(Object owner, int entityId) {
+		final IntBag entityIds = ownerEntities.get(owner);
+		if ( entityIds != null ) {
+			entityIds.removeValue(entityId);
+			if ( entityIds.isEmpty() ) {
+				ownerEntities.remove(owner);
+			}
+		}
 	}
 
-	private void invalidateHierarchicalCache() {
-		if ( hierarchicalListenerCache.size() > 0 ) {
-			hierarchicalListenerCache.clear();
+	private Bag<EventListener> getOwnerListeners(Object owner) {
+		Bag<EventListener> owned = ownerListeners.get(owner);
+		if ( owned == null ) {
+			owned = new Bag<>(4);
+			ownerListeners.put(owner, owned);
 		}
+		return owned;
+	}
+
+	/**
+	 * Rebuild hierarchical listeners of event classes that extend parameterType.
+	 *
+	 * Bags are replaced rather than modified, so dispatches in progress are not affected.
+	 */
+	private void updateHierarchicalListeners(Class<?> parameterType) {
+		for (int id = 0, s = eventTypes.size(); id < s; id++) {
+			final Class<?> eventType = eventTypes.get(id);
+			if (extendsType(eventType, parameterType)) {
+				hierarchicalListeners.set(id, getListenersForHierarchicalUncached(eventType));
+			}
+		}
+	}
+
+	private boolean extendsType(Class<?> eventType, Class<?> parameterType) {
+		for (Class<?> c : classHierarchy.of(eventType)) {
+			if (c == parameterType) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get dense id of event class, assigning the next free id at first sight.
+	 */
+	protected int getEventTypeId(Class<?> aClass) {
+		if (aClass == lastEventType) {
+			return lastEventTypeId;
+		}
+		Integer id = eventTypeIds.get(aClass);
+		if (id == null) {
+			id = eventTypes.size();
+			eventTypeIds.put(aClass, id);
+			eventTypes.add(aClass);
+			entityEventTypes.set(id, ClassReflection.isAssignableFrom(EntityEvent.class, aClass));
+			hierarchicalListeners.set(id, getListenersForHierarchicalUncached(aClass));
+		}
+		lastEventType = aClass;
+		lastEventTypeId = id;
+		return id;
 	}
 
 	/**
@@ -65,26 +261,16 @@ public class FastEventDispatcher implements EventDispatchStrategy {
 	}
 
 	/**
-	 * Get listeners for class, including all superclasses.
-	 * Backed by cache.
+	 * Get listeners for class, including all superclasses,
+	 * sorted by priority.
 	 *
-	 * Not sorted!
+	 * Backed by table indexed by event class id, kept up to date on registration.
 	 *
 	 * @param aClass Class to fetch listeners for.
 	 * @return Bag of listeners, empty if none found.
 	 */
 	protected Bag<EventListener> getListenersForHierarchical(Class<?> aClass) {
-		Bag<EventListener> listeners = hierarchicalListenerCache.get(aClass);
-		if (listeners == null) {
-			listeners = getListenersForHierarchicalUncached(aClass);
-
-			// presort the listeners by priority.
-			// Should speed things up in the case of an oft reused superclass.
-			BagUtils.sort(listeners);
-
-			hierarchicalListenerCache.put(aClass, listeners);
-		}
-		return listeners;
+		return hierarchicalListeners.get(getEventTypeId(aClass));
 	}
 
 	/**
@@ -102,18 +288,18 @@ public class FastEventDispatcher implements EventDispatchStrategy {
 		final Class<?>[] classes = classHierarchy.of(aClass);
 
 		// step through hierarchy back to front, fetching the listeners for each step.
-		final Bag<EventListener> hierarchicalListeners = new Bag<>(4);
+		final Bag<EventListener> listenersForHierarchy = new Bag<>(4);
 		for (Class<?> c : classes) {
 			final Bag<EventListener> listeners = getListenersFor(c, false);
 			if (listeners != null) {
-				hierarchicalListeners.addAll(listeners);
+				listenersForHierarchy.addAll(listeners);
 			}
 		}
 
 		// sort by priority.
-		BagUtils.sort(hierarchicalListeners);
+		BagUtils.sort(listenersForHierarchy);
 
-		return hierarchicalListeners;
+		return listenersForHierarchy;
 	}
 
 	/**
@@ -123,8 +309,26 @@ public class FastEventDispatcher implements EventDispatchStrategy {
 	@Override
 	public void dispatch(Event event) {
 		if ( event == null ) throw new NullPointerException("Event required.");
+		dispatch(event, getEventTypeId(event.getClass()));
+	}
 
-		final Bag<EventListener> listeners = getListenersForHierarchical(event.getClass());
+	/**
+	 * Dispatch event of known type to registered listeners.
+	 * For subclasses that already resolved the type id, skips the lookup.
+	 *
+	 * @param typeId id of the event class, from {@link #getEventTypeId(Class)}.
+	 */
+	protected void dispatch(Event event, int typeId) {
+		final Bag<EventListener> listeners = hierarchicalListeners.get(typeId);
+
+		if ( entityEventTypes.get(typeId) ) {
+			final int entityId = ((EntityEvent) event).getEntityId();
+			final Bag<EventListener> targeted = entityId >= 0 ? entityListeners.safeGet(entityId) : null;
+			if ( targeted != null ) {
+				dispatch(event, listeners, targeted);
+				return;
+			}
+		}
 
 		/** Fetch hierarchical list of listeners. */
 		Object[] data = listeners.getData();
@@ -136,11 +340,53 @@ public class FastEventDispatcher implements EventDispatchStrategy {
 		}
 	}
 
+	/**
+	 * Deliver to listeners for all entities and listeners of the target entity,
+	 * merged by priority. Both are sorted, listeners for all entities go first on equal priority.
+	 */
+	private void dispatch(Event event, Bag<EventListener> listeners, Bag<EventListener> targeted) {
+		final Class<?>[] hierarchy = classHierarchy.of(event.getClass());
+		final Object[] data = listeners.getData();
+		final Object[] targetedData = targeted.getData();
+		final int s = listeners.size();
+		final int ts = targeted.size();
+
+		int i = 0;
+		int j = nextHandling(targetedData, 0, ts, hierarchy);
+		while (i < s || j < ts) {
+			if (j == ts || (i < s && ((EventListener) data[i]).compareTo((EventListener) targetedData[j]) <= 0)) {
+				((EventListener) data[i++]).handle(event);
+			} else {
+				((EventListener) targetedData[j]).handle(event);
+				j = nextHandling(targetedData, j + 1, ts, hierarchy);
+			}
+		}
+	}
+
+	/** Index of first entity listener from start that accepts event hierarchy, or end if none. */
+	private static int nextHandling(Object[] listeners, int start, int end, Class<?>[] hierarchy) {
+		for (int i = start; i < end; i++) {
+			final Class<?> parameterType = ((EventListener) listeners[i]).getParameterType();
+			for (Class<?> c : hierarchy) {
+				if (c == parameterType) {
+					return i;
+				}
+			}
+		}
+		return end;
+	}
+
 	@Override
 	public void process() {
 		// not interested in this stuff
 	}
 
+	/** Delivers on the call stack, never carries over. */
+	@Override
+	public boolean hasCarryOver() {
+		return false;
+	}
+
 	@Override
 	public <T extends Event> T dispatch(Class<T> type) {
 		throw new UnsupportedOperationException("This dispatcher doesn't dispatch events by type!");
@@ -8,28 +8,104 @@ import com.artemis.utils.reflect.ReflectionException;
 
 /**
  * Polling event dispatcher.
- * 
+ *
+ * Optionally drains with a time budget. Once the budget of a {@link #process()}
+ * is spent, remaining events carry over to the next call, ahead of newer events.
+ * Each event is always delivered to all its listeners at once, in priority order,
+ * so delivery can go one event over the budget.
+ *
  * @author Namek
  */
 public class PollingEventDispatcher extends FastEventDispatcher {
 	private final Bag<Event> eventQueue = new Bag<Event>();
-	
+	/** Index of the first undelivered event, delivered events before it are compacted lazily. */
+	private int head;
+
+	/** Nanoseconds per {@link #process()}, 0 for unlimited. */
+	private long budget;
+	private int carryOver;
+	private int peakQueueDepth;
+
+	public PollingEventDispatcher() {
+		this(0);
+	}
+
+	/**
+	 * @param budget nanoseconds to spend delivering events per {@link #process()}, 0 for unlimited.
+	 */
+	public PollingEventDispatcher(long budget) {
+		setBudget(budget);
+	}
+
 	@Override
 	public void process() {
-		Object[] eventsToDispatch = eventQueue.getData();
-		
-		for (int i = 0, s = eventQueue.size(); i < s; i++) {
-			Event event = (Event) eventsToDispatch[i];
-			super.dispatch(event);
+		// events queued by listeners wait for the next call.
+		final int s = eventQueue.size();
+		if (budget > 0 && head < s) {
+			long time = getTime();
+			final long deadline = time + budget;
+			// always deliver at least one event, so the queue cannot stall.
+			do {
+				deliver();
+				time = getTime();
+			} while (head < s && time < deadline);
+		} else {
+			while (head < s) {
+				deliver();
+			}
 		}
-		
-		eventQueue.clear();
+
+		carryOver = s - head;
+		removeDelivered();
 	}
-	
-	public void dispatch(Event event) {
+
+	private void deliver() {
+		// listeners can grow the queue, fetch backing array every time.
+		final Object[] eventsToDispatch = eventQueue.getData();
+		final Event event = (Event) eventsToDispatch[head];
+		// don't hold on to delivered events.
+		eventsToDispatch[head++] = null;
+		super.dispatch(event);
+		delivered(event);
+	}
+
+	/**
+	 * Drop delivered events from the front of the queue, keeping the order of the rest.
+	 *
+	 * Only compacts once the queue is drained or delivered events take up half of it,
+	 * so draining a backlog in small steps stays linear.
+	 */
+	private void removeDelivered() {
+		final int size = eventQueue.size();
+		if (head == size) {
+			eventQueue.clear();
+			head = 0;
+		} else if (head > eventQueue.getCapacity() / 2) {
+			final Object[] data = eventQueue.getData();
+			System.arraycopy(data, head, data, 0, size - head);
+			for (int i = 0; i < head; i++) {
+				eventQueue.removeLast();
+			}
+			head = 0;
+		}
+	}
+
+	/** Called after event has been delivered to all listeners. */
+	protected void delivered(Event event) {
+	}
+
+	/** Queue event for delivery on next {@link #process()}. */
+	protected void queue(Event event) {
 		eventQueue.add(event);
+		if (getQueueDepth() > peakQueueDepth) {
+			peakQueueDepth = getQueueDepth();
+		}
+	}
+
+	public void dispatch(Event event) {
+		queue(event);
 	}
-	
+
 	@Override
 	public <T extends Event> T dispatch(Class<T> type) {
 		T event;
@@ -41,7 +117,51 @@ public class PollingEventDispatcher extends FastEventDispatcher {
 			String error = "Couldn't instantiate object of type " + type.getName();
 			throw new RuntimeException(error, e);
 		}
-		
+
 		return event;
 	}
+
+	/**
+	 * Determine elapsed time.
+	 *
+	 * @return Current time in nanoseconds.
+	 */
+	protected long getTime() {
+		return System.nanoTime();
+	}
+
+	/** Nanoseconds to spend delivering events per {@link #process()}, 0 for unlimited. */
+	public long getBudget() {
+		return budget;
+	}
+
+	/** @param budget nanoseconds to spend delivering events per {@link #process()}, 0 for unlimited. */
+	public void setBudget(long budget) {
+		if (budget < 0) throw new IllegalArgumentException("Budget cannot be negative.");
+		this.budget = budget;
+	}
+
+	/** Number of events pending delivery. */
+	public int getQueueDepth() {
+		return eventQueue.size() - head;
+	}
+
+	/** Largest queue depth since creation or last {@link #resetPeakQueueDepth()}. */
+	public int getPeakQueueDepth() {
+		return peakQueueDepth;
+	}
+
+	public void resetPeakQueueDepth() {
+		peakQueueDepth = getQueueDepth();
+	}
+
+	/** Number of events the last {@link #process()} left for the next call, because the budget ran out. */
+	public int getCarryOver() {
+		return carryOver;
+	}
+
+	@Override
+	public boolean hasCarryOver() {
+		return carryOver > 0;
+	}
 }
@@ -1,33 +1,33 @@
 package net.mostlyoriginal.api.event.dispatcher;
 
-import com.artemis.utils.Bag;
 import net.mostlyoriginal.api.event.common.Event;
 import net.mostlyoriginal.api.utils.pooling.PoolsCollection;
 
 /**
  * <p>Polling event dispatcher that cares about garbage collection by using Object Pool pattern.</p>
  * <p><b>Note:</b> remember to manually reset event objects OR use Poolable interface.</p>
+ * <p>Supports the same time budget as {@link PollingEventDispatcher}.</p>
  * 
  * @author Namek
  */
-public class PollingPooledEventDispatcher extends FastEventDispatcher {
-    private final Bag<Event> eventQueue = new Bag<Event>();
+public class PollingPooledEventDispatcher extends PollingEventDispatcher {
     private final PoolsCollection pools = new PoolsCollection();
 
-	@Override
-	public void process() {
-		Object[] eventsToDispatch = eventQueue.getData();
-		
-		for (int i = 0, s = eventQueue.size(); i < s; i++) {
-			Event event = (Event) eventsToDispatch[i];
-
-			super.dispatch(event);
-			pools.free(event);
-		}
-		
-		eventQueue.clear();
+	public PollingPooledEventDispatcher() {
+		this(0);
+	}
+
+	/**
+	 * @param budget nanoseconds to spend delivering events per {@link #process()}, 0 for unlimited.
+	 */
+	public PollingPooledEventDispatcher(long budget) {
+		super(budget);
 	}
 
+	@Override
+	protected void delivered(Event event) {
+		pools.free(event);
+	}
 
 	public void dispatch(Event event) {
 		throw new UnsupportedOperationException("This dispatcher manages its own events. Use dispatch(Class<T> type) instead!");
@@ -36,7 +36,7 @@ public class PollingPooledEventDispatcher extends FastEventDispatcher {
 	@Override
 	public <T extends Event> T dispatch(Class<T> type) {
 		T event = pools.obtain(type);
-		eventQueue.add(event);
+		queue(event);
 
 		return event;
 	}
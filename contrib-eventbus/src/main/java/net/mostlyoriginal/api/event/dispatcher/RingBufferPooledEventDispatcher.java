@@ -0,0 +1,198 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import com.artemis.utils.Bag;
+import com.artemis.utils.IntBag;
+import com.artemis.utils.reflect.ClassReflection;
+import com.artemis.utils.reflect.ReflectionException;
+import net.mostlyoriginal.api.event.common.Event;
+import net.mostlyoriginal.api.utils.pooling.Poolable;
+
+/**
+ * <p>Polling event dispatcher that preallocates events in a ring buffer per event type.</p>
+ *
+ * <p>{@link #dispatch(Class)} hands out the next free slot of the type's ring, {@link #process()}
+ * delivers events in dispatch order and returns the slots. Event types are resolved by their dense
+ * dispatcher id, so once buffers are large enough dispatching produces no garbage. Rings that run
+ * full double in size; use {@link #getHighWaterMark(Class)} to size them up front with
+ * {@link #ensureCapacity(Class, int)}.</p>
+ *
+ * <p><b>Note:</b> remember to manually reset event objects OR use Poolable interface.
+ * Do not hold on to events after they are delivered, they will be reused.</p>
+ *
+ * @see PollingPooledEventDispatcher
+ */
+public class RingBufferPooledEventDispatcher extends FastEventDispatcher {
+
+	public static final int DEFAULT_CAPACITY = 64;
+
+	private final int initialCapacity;
+
+	/** Ring per event type, by event type id. */
+	private final Bag<EventRing> rings = new Bag<>();
+
+	/** Event type ids in dispatch order, pending delivery. */
+	private IntBag pending = new IntBag();
+	/** Event type ids being delivered. */
+	private IntBag delivering = new IntBag();
+
+	public RingBufferPooledEventDispatcher() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param initialCapacity initial ring size per event type, rounded up to a power of two.
+	 */
+	public RingBufferPooledEventDispatcher(int initialCapacity) {
+		if (initialCapacity < 1) throw new IllegalArgumentException("Capacity must be positive.");
+		this.initialCapacity = initialCapacity;
+	}
+
+	@Override
+	public void process() {
+		// listeners can dispatch while we deliver, those events wait for the next call.
+		final IntBag order = pending;
+		pending = delivering;
+		delivering = order;
+
+		final int[] ids = order.getData();
+		for (int i = 0, s = order.size(); i < s; i++) {
+			final EventRing ring = rings.get(ids[i]);
+			final Event event = ring.peek();
+			dispatch(event, ids[i]);
+			ring.free();
+		}
+
+		order.setSize(0);
+	}
+
+	public void dispatch(Event event) {
+		throw new UnsupportedOperationException("This dispatcher manages its own events. Use dispatch(Class<T> type) instead!");
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T extends Event> T dispatch(Class<T> type) {
+		final int id = getEventTypeId(type);
+		pending.add(id);
+		return (T) getRing(id, type).obtain();
+	}
+
+	/**
+	 * Preallocate at least capacity events of type.
+	 *
+	 * @param capacity minimum ring size, rounded up to a power of two.
+	 */
+	public void ensureCapacity(Class<? extends Event> type, int capacity) {
+		final EventRing ring = getRing(getEventTypeId(type), type);
+		while (ring.events.length < capacity) {
+			ring.grow();
+		}
+	}
+
+	/** Number of preallocated events of type. */
+	public int getCapacity(Class<? extends Event> type) {
+		return getRing(getEventTypeId(type), type).events.length;
+	}
+
+	/**
+	 * Largest number of events of type pending at once, since creation or last
+	 * {@link #resetHighWaterMarks()}. Use it to size the ring with {@link #ensureCapacity(Class, int)}.
+	 */
+	public int getHighWaterMark(Class<? extends Event> type) {
+		return getRing(getEventTypeId(type), type).highWaterMark;
+	}
+
+	public void resetHighWaterMarks() {
+		for (int i = 0, s = rings.size(); i < s; i++) {
+			final EventRing ring = rings.get(i);
+			if (ring != null) {
+				ring.highWaterMark = ring.size;
+			}
+		}
+	}
+
+	private EventRing getRing(int id, Class<?> type) {
+		EventRing ring = rings.safeGet(id);
+		if (ring == null) {
+			ring = new EventRing(type, initialCapacity);
+			rings.set(id, ring);
+		}
+		return ring;
+	}
+
+	/** Preallocated events of a single type, handed out and returned in order. */
+	private static class EventRing {
+		private final Class<?> type;
+		/** Resolved once, failing instanceof checks against interfaces are slow. */
+		private final boolean typeImplementsPoolable;
+		private Event[] events;
+		private int mask;
+		private int head;
+		private int size;
+		private int highWaterMark;
+
+		EventRing(Class<?> type, int capacity) {
+			this.type = type;
+			this.typeImplementsPoolable = ClassReflection.isAssignableFrom(Poolable.class, type);
+			int length = 1;
+			while (length < capacity) {
+				length <<= 1;
+			}
+			events = new Event[length];
+			mask = length - 1;
+			fill(0, length);
+		}
+
+		/** Next free event, appended at the tail. */
+		Event obtain() {
+			if (size == events.length) {
+				grow();
+			}
+			final Event event = events[(head + size) & mask];
+			size++;
+			if (size > highWaterMark) {
+				highWaterMark = size;
+			}
+			return event;
+		}
+
+		/** Oldest pending event. */
+		Event peek() {
+			return events[head];
+		}
+
+		/** Return oldest pending event to the ring. */
+		void free() {
+			final Event event = events[head];
+			if (typeImplementsPoolable) {
+				((Poolable) event).reset();
+			}
+			head = (head + 1) & mask;
+			size--;
+		}
+
+		/** Double ring size, keeping pending events in order. */
+		void grow() {
+			final Event[] grown = new Event[events.length * 2];
+			for (int i = 0; i < events.length; i++) {
+				grown[i] = events[(head + i) & mask];
+			}
+			final int oldLength = events.length;
+			events = grown;
+			mask = grown.length - 1;
+			head = 0;
+			fill(oldLength, grown.length);
+		}
+
+		private void fill(int from, int to) {
+			try {
+				for (int i = from; i < to; i++) {
+					events[i] = (Event) ClassReflection.newInstance(type);
+				}
+			} catch (ReflectionException e) {
+				String error = "Couldn't instantiate object of type " + type.getName();
+				throw new RuntimeException(error, e);
+			}
+		}
+	}
+}
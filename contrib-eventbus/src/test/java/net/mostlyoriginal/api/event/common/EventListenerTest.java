@@ -137,6 +137,56 @@ public class EventListenerTest {
 	}
 
 
+	private static class PrivateListenerPojo {
+		int count=0;
+		private void call(BasicEvent event) {
+			count++;
+		}
+	}
+
+	@Test
+	public void PrivateListener_DefaultInvoker_BoundToMethodHandle() throws ReflectionException {
+		PrivateListenerPojo pojo = new PrivateListenerPojo();
+		final EventListener listener = new EventListener(pojo, ClassReflection.getDeclaredMethod(PrivateListenerPojo.class, "call", BasicEvent.class));
+		Assert.assertTrue(listener.getInvoker() instanceof MethodHandleListenerInvoker);
+		listener.handle(new BasicEvent());
+		listener.handle(new BasicEvent());
+		Assert.assertEquals(2, pojo.count);
+	}
+
+	@Test
+	public void PrivateListener_ReflectionInvoker_Called() throws ReflectionException {
+		PrivateListenerPojo pojo = new PrivateListenerPojo();
+		final Method method = ClassReflection.getDeclaredMethod(PrivateListenerPojo.class, "call", BasicEvent.class);
+		final EventListener listener = new EventListener(pojo, method, 0, false, new ReflectionListenerInvoker(pojo, method));
+		listener.handle(new BasicEvent());
+		Assert.assertEquals(1, pojo.count);
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void FailingListener_DefaultInvoker_WrapsException() throws ReflectionException {
+		class ListenerPojo {
+			public void call(BasicEvent event) {
+				throw new IllegalStateException();
+			}
+		}
+		ListenerPojo pojo = new ListenerPojo();
+		new EventListener(pojo, findMethod(pojo, "call", BasicEvent.class)).handle(new BasicEvent());
+	}
+
+	@Test(expected = StackOverflowError.class)
+	public void FailingListener_MethodHandleInvoker_RethrowsErrorUnwrapped() throws ReflectionException {
+		class ListenerPojo {
+			public void call(BasicEvent event) {
+				throw new StackOverflowError();
+			}
+		}
+		ListenerPojo pojo = new ListenerPojo();
+		final EventListener listener = new EventListener(pojo, findMethod(pojo, "call", BasicEvent.class));
+		Assert.assertTrue(listener.getInvoker() instanceof MethodHandleListenerInvoker);
+		listener.handle(new BasicEvent());
+	}
+
 	private Method findMethod(Object o, String methodName, Class... args) throws ReflectionException {
         return ClassReflection.getMethod(o.getClass(), methodName, args);
     }
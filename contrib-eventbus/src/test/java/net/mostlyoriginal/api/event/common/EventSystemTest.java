@@ -4,10 +4,22 @@ import com.artemis.BaseSystem;
 import com.artemis.Manager;
 import com.artemis.World;
 import com.artemis.WorldConfiguration;
+import net.mostlyoriginal.api.event.dispatcher.ConcurrentEventDispatcher;
+import net.mostlyoriginal.api.event.dispatcher.PollingEventDispatcher;
+import net.mostlyoriginal.api.event.dispatcher.PollingPooledEventDispatcher;
+import net.mostlyoriginal.api.utils.pooling.Poolable;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Daan van Yperen
@@ -113,4 +125,145 @@ public class EventSystemTest {
         w.getSystem(EventSystem.class).dispatch(new SimpleEvent());
         assertEquals(1, pojo.count);
     }
+
+    @Test
+    public void DispatchAfter_DelayPassed_DispatchedOnce() {
+        final World w = new World(config);
+        SimplePojo pojo = new SimplePojo();
+        final EventSystem eventSystem = w.getSystem(EventSystem.class);
+        eventSystem.registerEvents(pojo);
+        eventSystem.dispatchAfter(new SimpleEvent(), 2.5f);
+        eventSystem.dispatchAfter(SimpleEvent.class, 1f);
+
+        w.setDelta(1f);
+        w.process();
+        assertEquals(1, pojo.count);
+        w.process();
+        assertEquals(1, pojo.count);
+        w.setDelta(0.5f);
+        w.process();
+        assertEquals(2, pojo.count);
+        w.process();
+        assertEquals(2, pojo.count);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void DispatchAfter_PooledDispatcher_FailsAtCallSite() {
+        final WorldConfiguration pooledConfig = new WorldConfiguration();
+        pooledConfig.setSystem(new EventSystem(new PollingPooledEventDispatcher(), new SubscribeAnnotationFinder()));
+        final World w = new World(pooledConfig);
+        w.getSystem(EventSystem.class).dispatchAfter(SimpleEvent.class, 1f);
+    }
+
+    public static class PooledEvent extends BasicEvent implements Poolable {
+        public int value;
+
+        @Override
+        public void reset() {
+            value = 0;
+        }
+    }
+
+    public static class ValuePojo {
+        public final List<Integer> values = new ArrayList<>();
+
+        @Subscribe
+        public void testListener(PooledEvent event) {
+            values.add(event.value);
+        }
+    }
+
+    @Test
+    public void DispatchAfter_PooledEventsCarriedOver_NotRecycledBeforeDelivery() {
+        final WorldConfiguration budgetConfig = new WorldConfiguration();
+        final PollingEventDispatcher polling = new PollingEventDispatcher(1) {
+            @Override
+            protected long getTime() {
+                // every event spends the whole budget.
+                return System.nanoTime() + 1000;
+            }
+        };
+        budgetConfig.setSystem(new EventSystem(polling, new SubscribeAnnotationFinder()));
+        final World w = new World(budgetConfig);
+        final EventSystem eventSystem = w.getSystem(EventSystem.class);
+        ValuePojo pojo = new ValuePojo();
+        eventSystem.registerEvents(pojo);
+
+        eventSystem.dispatchAfter(PooledEvent.class, 0.5f).value = 1;
+        eventSystem.dispatchAfter(PooledEvent.class, 0.5f).value = 2;
+        w.setDelta(1f);
+        w.process();
+        // carried over, a new pooled event must not reuse the second one.
+        eventSystem.dispatchAfter(PooledEvent.class, 0.5f).value = 3;
+        w.process();
+        w.process();
+
+        assertEquals(Arrays.asList(1, 2, 3), pojo.values);
+    }
+
+    @Test
+    public void DispatchAfter_PooledEventsBehindUnpublishedSlot_NotRecycledBeforeDelivery() throws Exception {
+        final WorldConfiguration concurrentConfig = new WorldConfiguration();
+        final ConcurrentEventDispatcher concurrent = new ConcurrentEventDispatcher(8, ConcurrentEventDispatcher.OverflowPolicy.FAIL);
+        concurrentConfig.setSystem(new EventSystem(concurrent, new SubscribeAnnotationFinder()));
+        final World w = new World(concurrentConfig);
+        final EventSystem eventSystem = w.getSystem(EventSystem.class);
+        ValuePojo pojo = new ValuePojo();
+        eventSystem.registerEvents(pojo);
+
+        // another thread claims the first slot, but has not published its event yet.
+        final Field tailField = ConcurrentEventDispatcher.class.getDeclaredField("tail");
+        tailField.setAccessible(true);
+        ((AtomicLong) tailField.get(concurrent)).incrementAndGet();
+
+        eventSystem.dispatchAfter(PooledEvent.class, 0.5f).value = 1;
+        w.setDelta(1f);
+        w.process();
+        assertTrue(pojo.values.isEmpty());
+        // must not reuse the event still waiting behind the unpublished slot.
+        eventSystem.dispatchAfter(PooledEvent.class, 5f).value = 2;
+
+        // producer finishes posting.
+        final Field bufferField = ConcurrentEventDispatcher.class.getDeclaredField("buffer");
+        final Field sequenceField = ConcurrentEventDispatcher.class.getDeclaredField("sequence");
+        bufferField.setAccessible(true);
+        sequenceField.setAccessible(true);
+        ((Event[]) bufferField.get(concurrent))[0] = new SimpleEvent();
+        ((AtomicLongArray) sequenceField.get(concurrent)).set(0, 1);
+        w.process();
+
+        assertEquals(Arrays.asList(1), pojo.values);
+    }
+
+    public static class HitEvent extends BasicEvent implements EntityEvent {
+        final int entityId;
+
+        public HitEvent(int entityId) {
+            this.entityId = entityId;
+        }
+
+        @Override
+        public int getEntityId() {
+            return entityId;
+        }
+    }
+
+    @Test
+    public void RegisterEventsFor_EntityDeleted_ListenersDropped() {
+        final World w = new World(config);
+        final EventSystem eventSystem = w.getSystem(EventSystem.class);
+        final int entityId = w.create();
+        final int otherId = w.create();
+        SimplePojo pojo = new SimplePojo();
+        eventSystem.registerEventsFor(entityId, pojo);
+
+        eventSystem.dispatch(new HitEvent(entityId));
+        eventSystem.dispatch(new HitEvent(otherId));
+        assertEquals(1, pojo.count);
+
+        w.delete(entityId);
+        w.process();
+        eventSystem.dispatch(new HitEvent(entityId));
+        assertEquals(1, pojo.count);
+    }
 }
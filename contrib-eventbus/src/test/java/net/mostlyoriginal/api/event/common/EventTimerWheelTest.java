@@ -0,0 +1,163 @@
+package net.mostlyoriginal.api.event.common;
+
+import com.artemis.utils.Bag;
+import net.mostlyoriginal.api.utils.pooling.Poolable;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EventTimerWheelTest {
+
+	public static class NumberedEvent implements Event, Poolable {
+		int number;
+
+		@Override
+		public void reset() {
+			number = 0;
+		}
+	}
+
+	private static NumberedEvent event(int number) {
+		final NumberedEvent event = new NumberedEvent();
+		event.number = number;
+		return event;
+	}
+
+	private static String numbers(Bag<Event> events) {
+		final StringBuilder result = new StringBuilder();
+		for (int i = 0, s = events.size(); i < s; i++) {
+			if (i > 0) result.append(',');
+			result.append(((NumberedEvent) events.get(i)).number);
+		}
+		events.clear();
+		return result.toString();
+	}
+
+	@Test
+	public void Advance_BeforeDelay_NotExpired() {
+		final EventTimerWheel wheel = new EventTimerWheel(0.1f);
+		final Bag<Event> expired = new Bag<>();
+		wheel.schedule(event(1), 1f);
+
+		wheel.advance(0.5f, expired);
+		wheel.advance(0.45f, expired);
+		assertEquals(0, expired.size());
+		assertEquals(1, wheel.size());
+
+		wheel.advance(0.1f, expired);
+		assertEquals("1", numbers(expired));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void Advance_ZeroDelay_ExpiresNextAdvance() {
+		final EventTimerWheel wheel = new EventTimerWheel(0.1f);
+		final Bag<Event> expired = new Bag<>();
+		wheel.advance(0.05f, expired);
+		wheel.schedule(event(1), 0f);
+
+		wheel.advance(0.05f, expired);
+		assertEquals("1", numbers(expired));
+	}
+
+	@Test
+	public void Advance_DelaysAcrossLevels_ExpiresInDueOrder() {
+		final EventTimerWheel wheel = new EventTimerWheel(1f);
+		final Bag<Event> expired = new Bag<>();
+		// level 0, 1, 2 and 3.
+		wheel.schedule(event(300000), 300000f);
+		wheel.schedule(event(5000), 5000f);
+		wheel.schedule(event(100), 100f);
+		wheel.schedule(event(3), 3f);
+
+		wheel.advance(2f, expired);
+		assertEquals("", numbers(expired));
+		wheel.advance(1f, expired);
+		assertEquals("3", numbers(expired));
+		wheel.advance(96f, expired);
+		assertEquals("", numbers(expired));
+		wheel.advance(1f, expired);
+		assertEquals("100", numbers(expired));
+		wheel.advance(4899f, expired);
+		assertEquals("", numbers(expired));
+		wheel.advance(1f, expired);
+		assertEquals("5000", numbers(expired));
+		wheel.advance(295000f, expired);
+		assertEquals("300000", numbers(expired));
+	}
+
+	@Test
+	public void Advance_SingleLargeDelta_ExpiresAllInDueOrder() {
+		final EventTimerWheel wheel = new EventTimerWheel(1f);
+		final Bag<Event> expired = new Bag<>();
+		for (int i = 10; i > 0; i--) {
+			wheel.schedule(event(i * 1000), i * 1000f);
+		}
+		wheel.advance(10000f, expired);
+		assertEquals("1000,2000,3000,4000,5000,6000,7000,8000,9000,10000", numbers(expired));
+	}
+
+	@Test
+	public void Advance_DelayBeyondWheelSpan_ExpiresWhenDue() {
+		final EventTimerWheel wheel = new EventTimerWheel(0.5f);
+		final Bag<Event> expired = new Bag<>();
+		// wheel spans 2^24 ticks.
+		final float delay = (1 << 23) + 100f;
+		wheel.schedule(event(1), delay);
+
+		wheel.advance(delay - 1, expired);
+		assertEquals(0, expired.size());
+		wheel.advance(1f, expired);
+		assertEquals("1", numbers(expired));
+	}
+
+	@Test
+	public void Schedule_ManyTimers_GrowsAndExpiresAll() {
+		final EventTimerWheel wheel = new EventTimerWheel(0.01f);
+		final Bag<Event> expired = new Bag<>();
+		for (int i = 0; i < 1000; i++) {
+			wheel.schedule(event(i), (i % 100) * 0.1f);
+		}
+		assertEquals(1000, wheel.size());
+		wheel.advance(11f, expired);
+		assertEquals(1000, expired.size());
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void Schedule_Pooled_EventReusedAfterFree() {
+		final EventTimerWheel wheel = new EventTimerWheel(0.1f);
+		final Bag<Event> expired = new Bag<>();
+		final NumberedEvent first = wheel.schedule(NumberedEvent.class, 0.1f);
+		first.number = 5;
+
+		wheel.advance(0.1f, expired);
+		assertEquals("5", numbers(expired));
+
+		// still delivering, not returned to the pool yet.
+		wheel.advance(0.1f, expired);
+		assertEquals(5, first.number);
+
+		wheel.freeExpired();
+		assertEquals(0, first.number);
+		assertSame(first, wheel.schedule(NumberedEvent.class, 0.1f));
+	}
+
+	@Test
+	public void Clear_PendingTimers_Dropped() {
+		final EventTimerWheel wheel = new EventTimerWheel(0.1f);
+		final Bag<Event> expired = new Bag<>();
+		wheel.schedule(event(1), 1f);
+		wheel.schedule(NumberedEvent.class, 100f).number = 2;
+
+		wheel.clear();
+		assertEquals(0, wheel.size());
+		wheel.advance(200f, expired);
+		assertEquals(0, expired.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void Schedule_NegativeDelay_Exception() {
+		new EventTimerWheel().schedule(event(1), -1f);
+	}
+}
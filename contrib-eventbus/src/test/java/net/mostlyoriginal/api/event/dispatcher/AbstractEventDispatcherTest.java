@@ -2,6 +2,7 @@ package net.mostlyoriginal.api.event.dispatcher;
 
 import com.artemis.utils.reflect.ClassReflection;
 import com.artemis.utils.reflect.Method;
+import com.artemis.utils.reflect.ReflectionException;
 import net.mostlyoriginal.api.event.common.*;
 import org.junit.Before;
 import org.junit.Test;
@@ -9,6 +10,8 @@ import org.junit.Test;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public abstract class AbstractEventDispatcherTest {
@@ -223,4 +226,196 @@ public abstract class AbstractEventDispatcherTest {
 		assertEquals(1, pojo.calledCancelled);
 	}
 
+	@Test
+	public void Dispatch_UnregisteredListener_NotCalled() {
+		final MultiListenPojo pojo = new MultiListenPojo();
+		final EventListener l;
+		final EventListener l3;
+		try {
+			l = new EventListener(pojo, ClassReflection.getMethod(MultiListenPojo.class, "l", BaseEvent.class));
+			l3 = new EventListener(pojo, ClassReflection.getMethod(MultiListenPojo.class, "l3", ExtendedEvent.class));
+		} catch (ReflectionException e) {
+			throw new RuntimeException(e);
+		}
+		dispatcher.register(l);
+		dispatcher.register(l3);
+		dispatch(new ExtendedEvent());
+
+		assertTrue(dispatcher.unregister(l));
+		assertFalse(dispatcher.unregister(l));
+		dispatch(new ExtendedEvent());
+
+		assertEquals(1, pojo.calls1);
+		assertEquals(2, pojo.calls3);
+	}
+
+	@Test
+	public void Dispatch_UnregisteredOwner_NoListenersCalled() {
+		final MultiListenPojo pojo = setupListenerPojo(MultiListenPojo.class);
+		final SingleListenPojo other = setupListenerPojo(SingleListenPojo.class);
+		dispatch(new ExtendedEvent());
+
+		dispatcher.unregisterAll(pojo);
+		dispatch(new ExtendedEvent());
+
+		assertEquals(1, pojo.calls1);
+		assertEquals(1, pojo.calls2);
+		assertEquals(1, pojo.calls3);
+		assertEquals(2, other.calls);
+	}
+
+	@Test
+	public void Dispatch_ReregisteredListener_CalledAgain() {
+		final SingleListenPojo pojo = setupListenerPojo(SingleListenPojo.class);
+		dispatcher.unregisterAll(pojo);
+		dispatch(new BaseEvent());
+		assertEquals(0, pojo.calls);
+
+		for (EventListener listener : resolveAll(pojo)) {
+			dispatcher.register(listener);
+		}
+		dispatch(new BaseEvent());
+		assertEquals(1, pojo.calls);
+	}
+
+	/** Listeners for all methods declared by pojo class. */
+	private List<EventListener> resolveAll(Object pojo) {
+		final List<EventListener> listeners = new java.util.ArrayList<>();
+		for (Method method : ClassReflection.getMethods(pojo.getClass())) {
+			if ( method.getDeclaringClass().equals(pojo.getClass()) ) {
+				listeners.add(new EventListener(pojo, method));
+			}
+		}
+		return listeners;
+	}
+
+	@Test
+	public void Dispatch_UnregisterPrioritizedListener_OrderKept() {
+		class SequenceListen {
+			public String calls = "";
+
+			@Subscribe(priority = 5) public void a(BaseEvent event) { calls += "a"; }
+			@Subscribe(priority = 5) public void b(BaseEvent event) { calls += "b"; }
+			@Subscribe(priority = 5) public void c(BaseEvent event) { calls += "c"; }
+			@Subscribe(priority = 1) public void d(BaseEvent event) { calls += "d"; }
+		}
+
+		final SequenceListen pojo = new SequenceListen();
+		final List<EventListener> listeners = new SubscribeAnnotationFinder().resolve(pojo);
+		for (EventListener listener : listeners) {
+			dispatcher.register(listener);
+		}
+		dispatch(new BaseEvent());
+		final String before = pojo.calls;
+
+		EventListener removed = null;
+		for (EventListener listener : listeners) {
+			if ( listener.getMethod().getName().equals("a") ) {
+				removed = listener;
+			}
+		}
+		dispatcher.unregister(removed);
+		pojo.calls = "";
+		dispatch(new BaseEvent());
+
+		assertEquals(before.replace("a", ""), pojo.calls);
+	}
+
+	/** Targets entity 0. Fixed per class, so it survives dispatchers that instance events themselves. */
+	public static class EntityZeroEvent extends BaseEvent implements EntityEvent {
+		@Override
+		public int getEntityId() {
+			return 0;
+		}
+	}
+	public static class EntityOneEvent extends EntityZeroEvent {
+		@Override
+		public int getEntityId() {
+			return 1;
+		}
+	}
+
+	/** Register all methods declared by pojo as listeners for entity. */
+	private void registerFor(int entityId, Object pojo) {
+		for (EventListener listener : resolveAll(pojo)) {
+			dispatcher.registerFor(entityId, listener);
+		}
+	}
+
+	@Test
+	public void Dispatch_EntityEvent_OnlyTargetedEntityListenersCalled() {
+		final SingleListenPojo all = setupListenerPojo(SingleListenPojo.class);
+		final SingleListenPojo zero = new SingleListenPojo();
+		final SingleListenPojo one = new SingleListenPojo();
+		registerFor(0, zero);
+		registerFor(1, one);
+
+		dispatch(new EntityZeroEvent());
+		dispatch(new EntityOneEvent());
+		dispatch(new EntityOneEvent());
+		dispatch(new BaseEvent());
+
+		assertEquals(4, all.calls);
+		assertEquals(1, zero.calls);
+		assertEquals(2, one.calls);
+	}
+
+	@Test
+	public void Dispatch_EntityAndGlobalListeners_CalledInPriorityOrder() {
+		class SequenceListen {
+			public String calls = "";
+
+			@Subscribe(priority = 10) public void a(BaseEvent event) { calls += "a"; }
+			@Subscribe(priority = 1) public void c(BaseEvent event) { calls += "c"; }
+		}
+		class EntitySequenceListen {
+			final SequenceListen sequence;
+
+			EntitySequenceListen(SequenceListen sequence) {
+				this.sequence = sequence;
+			}
+
+			@Subscribe(priority = 5) public void b(EntityZeroEvent event) { sequence.calls += "b"; }
+			@Subscribe(priority = 1) public void d(BaseEvent event) { sequence.calls += "d"; }
+			@Subscribe(priority = 0) public void mismatched(MismatchedEvent event) { sequence.calls += "x"; }
+		}
+
+		final SequenceListen pojo = new SequenceListen();
+		for (EventListener listener : new SubscribeAnnotationFinder().resolve(pojo)) {
+			dispatcher.register(listener);
+		}
+		for (EventListener listener : new SubscribeAnnotationFinder().resolve(new EntitySequenceListen(pojo))) {
+			dispatcher.registerFor(0, listener);
+		}
+
+		dispatch(new EntityZeroEvent());
+		assertEquals("abcd", pojo.calls);
+	}
+
+	@Test
+	public void Dispatch_UnregisteredEntityListeners_NotCalled() {
+		final SingleListenPojo zero = new SingleListenPojo();
+		final SingleListenPojo one = new SingleListenPojo();
+		final SingleListenPojo owner = new SingleListenPojo();
+		registerFor(0, zero);
+		registerFor(1, one);
+		registerFor(0, owner);
+		registerFor(1, owner);
+
+		final EventListener listener = resolveAll(zero).get(0);
+		dispatcher.registerFor(0, listener);
+		assertTrue(dispatcher.unregisterFor(0, listener));
+		assertFalse(dispatcher.unregisterFor(0, listener));
+		assertFalse(dispatcher.unregisterFor(1, listener));
+		dispatcher.unregisterAllFor(1);
+		dispatcher.unregisterAll(owner);
+
+		dispatch(new EntityZeroEvent());
+		dispatch(new EntityOneEvent());
+
+		assertEquals(1, zero.calls);
+		assertEquals(0, one.calls);
+		assertEquals(0, owner.calls);
+	}
+
 }
\ No newline at end of file
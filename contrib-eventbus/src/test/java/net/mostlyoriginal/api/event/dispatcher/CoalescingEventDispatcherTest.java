@@ -0,0 +1,121 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import net.mostlyoriginal.api.event.common.CoalescingEvent;
+import net.mostlyoriginal.api.event.common.Event;
+import net.mostlyoriginal.api.event.common.EventDispatchStrategy;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CoalescingEventDispatcherTest extends AbstractEventDispatcherTest {
+	@Override
+	protected EventDispatchStrategy createDispatcherInstance() {
+		return new CoalescingEventDispatcher();
+	}
+
+	/** Dispatch wrapper. */
+	@Override
+	protected void dispatch(Event event) {
+		dispatcher.dispatch(event);
+		// this dispatcher processes after a world tick.
+		dispatcher.process();
+	}
+
+	public static class DamageEvent extends BaseEvent implements CoalescingEvent<DamageEvent> {
+		int entityId;
+		int damage;
+
+		public DamageEvent() {
+		}
+
+		public DamageEvent(int entityId, int damage) {
+			this.entityId = entityId;
+			this.damage = damage;
+		}
+
+		@Override
+		public int getCoalescingKey() {
+			return entityId;
+		}
+
+		@Override
+		public void merge(DamageEvent later) {
+			damage += later.damage;
+		}
+	}
+
+	public static class CriticalDamageEvent extends DamageEvent {
+		public CriticalDamageEvent(int entityId, int damage) {
+			super(entityId, damage);
+		}
+	}
+
+	public static class RecordingPojo {
+		public List<String> calls = new ArrayList<>();
+
+		public void damage(DamageEvent event) {
+			calls.add((event instanceof CriticalDamageEvent ? "crit" : "dmg") + event.entityId + "=" + event.damage);
+		}
+
+		public void mismatched(MismatchedEvent event) {
+			calls.add("other");
+		}
+	}
+
+	@Test
+	public void Process_DuplicateKeys_MergedAtFirstPosition() {
+		final RecordingPojo pojo = setupListenerPojo(RecordingPojo.class);
+		final CoalescingEventDispatcher coalescing = (CoalescingEventDispatcher) dispatcher;
+
+		coalescing.dispatch(new DamageEvent(1, 5));
+		coalescing.dispatch(new MismatchedEvent());
+		coalescing.dispatch(new DamageEvent(2, 1));
+		coalescing.dispatch(new DamageEvent(1, 3));
+		coalescing.dispatch(new CriticalDamageEvent(1, 10));
+		coalescing.dispatch(new DamageEvent(1, 2));
+		coalescing.dispatch(new CriticalDamageEvent(1, 10));
+		coalescing.process();
+
+		assertEquals("[dmg1=10, other, dmg2=1, crit1=20]", pojo.calls.toString());
+		assertEquals(3, coalescing.getCoalescedCount());
+	}
+
+	@Test
+	public void Process_KeyReadAtDelivery_EventsFromClassDispatchMerged() {
+		final RecordingPojo pojo = setupListenerPojo(RecordingPojo.class);
+
+		for (int i = 0; i < 1000; i++) {
+			final DamageEvent event = dispatcher.dispatch(DamageEvent.class);
+			event.entityId = i % 10;
+			event.damage = 1;
+		}
+		dispatcher.process();
+
+		assertEquals(10, pojo.calls.size());
+		assertEquals("dmg9=100", pojo.calls.get(9));
+
+		// index is reset between frames.
+		pojo.calls.clear();
+		dispatcher.dispatch(new DamageEvent(3, 1));
+		dispatcher.process();
+		assertEquals("[dmg3=1]", pojo.calls.toString());
+	}
+
+	@Test
+	public void Process_ManyDistinctKeys_EachDeliveredOnce() {
+		final RecordingPojo pojo = setupListenerPojo(RecordingPojo.class);
+
+		for (int pass = 0; pass < 2; pass++) {
+			for (int id = 0; id < 5000; id++) {
+				dispatcher.dispatch(new DamageEvent(id * 7919, 1));
+			}
+		}
+		dispatcher.process();
+
+		assertEquals(5000, pojo.calls.size());
+		assertEquals("dmg" + (4999 * 7919) + "=2", pojo.calls.get(4999));
+	}
+}
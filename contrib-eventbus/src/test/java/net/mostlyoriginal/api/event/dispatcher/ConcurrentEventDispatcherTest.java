@@ -0,0 +1,179 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import net.mostlyoriginal.api.event.common.Event;
+import net.mostlyoriginal.api.event.common.EventDispatchStrategy;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentEventDispatcherTest extends AbstractEventDispatcherTest {
+
+	@Override
+	protected EventDispatchStrategy createDispatcherInstance() {
+		return new ConcurrentEventDispatcher();
+	}
+
+	/** Dispatch wrapper. */
+	@Override
+	protected void dispatch(Event event) {
+		dispatcher.dispatch(event);
+		// this dispatcher processes after a world tick.
+		dispatcher.process();
+	}
+
+	public static class ProducerEvent extends BaseEvent {
+		int producer;
+		int sequence;
+	}
+
+	public static class OrderCheckingPojo {
+		public int calls = 0;
+		public int outOfOrder = 0;
+		public int[] last = new int[PRODUCERS];
+
+		public void l(ProducerEvent event) {
+			calls++;
+			if (event.sequence != last[event.producer] + 1) {
+				outOfOrder++;
+			}
+			last[event.producer] = event.sequence;
+		}
+	}
+
+	private static final int PRODUCERS = 4;
+	private static final int EVENTS_PER_PRODUCER = 20000;
+
+	@Test
+	public void Dispatch_ConcurrentProducers_AllEventsDeliveredInPostOrder() throws InterruptedException {
+		dispatcher = new ConcurrentEventDispatcher(64, ConcurrentEventDispatcher.OverflowPolicy.BLOCK);
+		final OrderCheckingPojo pojo = setupListenerPojo(OrderCheckingPojo.class);
+
+		final CountDownLatch done = new CountDownLatch(PRODUCERS);
+		for (int p = 0; p < PRODUCERS; p++) {
+			final int producer = p;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 1; i <= EVENTS_PER_PRODUCER; i++) {
+						ProducerEvent event = new ProducerEvent();
+						event.producer = producer;
+						event.sequence = i;
+						dispatcher.dispatch(event);
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+
+		while (done.getCount() > 0) {
+			dispatcher.process();
+		}
+		dispatcher.process();
+
+		assertEquals(PRODUCERS * EVENTS_PER_PRODUCER, pojo.calls);
+		assertEquals(0, pojo.outOfOrder);
+	}
+
+	@Test
+	public void Dispatch_FullQueueDropPolicy_DropsNewest() {
+		ConcurrentEventDispatcher concurrent = new ConcurrentEventDispatcher(2, ConcurrentEventDispatcher.OverflowPolicy.DROP);
+		dispatcher = concurrent;
+		final SingleListenPojo pojo = setupListenerPojo(SingleListenPojo.class);
+
+		assertTrue(concurrent.offer(new BaseEvent()));
+		concurrent.dispatch(new BaseEvent());
+		concurrent.dispatch(new BaseEvent());
+		assertFalse(concurrent.offer(new BaseEvent()));
+		assertEquals(2, concurrent.size());
+		assertEquals(1, concurrent.getDroppedCount());
+
+		concurrent.process();
+		assertEquals(2, pojo.calls);
+		assertEquals(0, concurrent.size());
+
+		// slots are reused after delivery.
+		concurrent.dispatch(new BaseEvent());
+		concurrent.process();
+		assertEquals(3, pojo.calls);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void Dispatch_FullQueueFailPolicy_Exception() {
+		dispatcher = new ConcurrentEventDispatcher(2, ConcurrentEventDispatcher.OverflowPolicy.FAIL);
+		dispatcher.dispatch(new BaseEvent());
+		dispatcher.dispatch(new BaseEvent());
+		dispatcher.dispatch(new BaseEvent());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void Dispatch_FullQueueBlockPolicyOnWorldThread_Exception() {
+		dispatcher = new ConcurrentEventDispatcher(2, ConcurrentEventDispatcher.OverflowPolicy.BLOCK);
+		dispatcher.process();
+		dispatcher.dispatch(new BaseEvent());
+		dispatcher.dispatch(new BaseEvent());
+		dispatcher.dispatch(new BaseEvent());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void Dispatch_FullQueueBlockPolicyBeforeFirstProcess_Exception() {
+		// like systems posting during initialize(), before the world ever processed.
+		dispatcher = new ConcurrentEventDispatcher(2, ConcurrentEventDispatcher.OverflowPolicy.BLOCK);
+		dispatcher.dispatch(new BaseEvent());
+		dispatcher.dispatch(new BaseEvent());
+		dispatcher.dispatch(new BaseEvent());
+	}
+
+	@Test(timeout = 5000)
+	public void Dispatch_FullQueueBlockPolicyOtherWorldThread_Blocks() throws InterruptedException {
+		final ConcurrentEventDispatcher concurrent = new ConcurrentEventDispatcher(2, ConcurrentEventDispatcher.OverflowPolicy.BLOCK);
+		dispatcher = concurrent;
+		final SingleListenPojo pojo = setupListenerPojo(SingleListenPojo.class);
+		final Thread world = new Thread() {
+			@Override
+			public void run() {
+				while (pojo.calls < 3) {
+					concurrent.process();
+					Thread.yield();
+				}
+			}
+		};
+		concurrent.setWorldThread(world);
+		concurrent.dispatch(new BaseEvent());
+		concurrent.dispatch(new BaseEvent());
+		world.start();
+		// waits for the world thread to make room.
+		concurrent.dispatch(new BaseEvent());
+		world.join();
+		assertEquals(3, pojo.calls);
+	}
+
+	public static class RepostingPojo {
+		public ConcurrentEventDispatcher dispatcher;
+		public int calls = 0;
+
+		public void l(ExtendedEvent event) {
+			calls++;
+			dispatcher.dispatch(new ExtendedEvent());
+		}
+	}
+
+	@Test
+	public void Process_ListenerPostsEvent_DeliveredNextProcess() {
+		ConcurrentEventDispatcher concurrent = new ConcurrentEventDispatcher();
+		dispatcher = concurrent;
+		final RepostingPojo pojo = setupListenerPojo(RepostingPojo.class);
+		pojo.dispatcher = concurrent;
+
+		concurrent.dispatch(new ExtendedEvent());
+		concurrent.process();
+		assertEquals(1, pojo.calls);
+		assertEquals(1, concurrent.size());
+
+		concurrent.process();
+		assertEquals(2, pojo.calls);
+	}
+}
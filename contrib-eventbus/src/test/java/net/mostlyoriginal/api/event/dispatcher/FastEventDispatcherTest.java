@@ -1,8 +1,13 @@
 package net.mostlyoriginal.api.event.dispatcher;
 
+import com.artemis.utils.Bag;
 import net.mostlyoriginal.api.event.common.EventDispatchStrategy;
+import net.mostlyoriginal.api.event.common.EventListener;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
 /**
  * Created by Daan on 14-9-2014.
  */
@@ -17,4 +22,22 @@ public class FastEventDispatcherTest extends AbstractEventDispatcherTest {
 	{
 		dispatcher.dispatch(BaseEvent.class);
 	}
+
+	@Test
+	public void Register_AfterDispatch_OnlyAffectedEventTypesUpdated()
+	{
+		final FastEventDispatcher fastDispatcher = (FastEventDispatcher) dispatcher;
+		dispatch(new ExtendedEvent());
+		dispatch(new MismatchedEvent());
+		assertEquals(0, fastDispatcher.getEventTypeId(ExtendedEvent.class));
+		assertEquals(1, fastDispatcher.getEventTypeId(MismatchedEvent.class));
+
+		final Bag<EventListener> mismatchedListeners = fastDispatcher.getListenersForHierarchical(MismatchedEvent.class);
+		final SingleListenPojo pojo = setupListenerPojo(SingleListenPojo.class);
+
+		dispatch(new ExtendedEvent());
+		assertEquals(1, pojo.calls);
+		assertEquals(1, fastDispatcher.getListenersForHierarchical(ExtendedEvent.class).size());
+		assertSame(mismatchedListeners, fastDispatcher.getListenersForHierarchical(MismatchedEvent.class));
+	}
 }
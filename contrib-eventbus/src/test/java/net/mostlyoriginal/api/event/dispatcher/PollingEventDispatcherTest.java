@@ -2,6 +2,12 @@ package net.mostlyoriginal.api.event.dispatcher;
 
 import net.mostlyoriginal.api.event.common.Event;
 import net.mostlyoriginal.api.event.common.EventDispatchStrategy;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 
 public class PollingEventDispatcherTest extends AbstractEventDispatcherTest {
 	@Override
@@ -20,4 +26,111 @@ public class PollingEventDispatcherTest extends AbstractEventDispatcherTest {
 			throw new RuntimeException(e);
 		}
 	}
+
+	/** Clock that advances 10ns every time it is read. */
+	private static class SteppingPollingEventDispatcher extends PollingEventDispatcher {
+		long time;
+
+		SteppingPollingEventDispatcher(long budget) {
+			super(budget);
+		}
+
+		@Override
+		protected long getTime() {
+			return time += 10;
+		}
+	}
+
+	public static class NumberedEvent extends BaseEvent {
+		final int number;
+
+		public NumberedEvent(int number) {
+			this.number = number;
+		}
+	}
+
+	public static class RecordingPojo {
+		public List<Integer> numbers = new ArrayList<>();
+		public PollingEventDispatcher requeue;
+
+		public void l(NumberedEvent event) {
+			numbers.add(event.number);
+			if ( requeue != null ) {
+				requeue.dispatch(new NumberedEvent(event.number + 100));
+			}
+		}
+	}
+
+	@Test
+	public void Process_BudgetSpent_RestCarriedOverInOrder() {
+		final PollingEventDispatcher polling = new SteppingPollingEventDispatcher(25);
+		dispatcher = polling;
+		final RecordingPojo pojo = setupListenerPojo(RecordingPojo.class);
+
+		for (int i = 0; i < 5; i++) {
+			polling.dispatch(new NumberedEvent(i));
+		}
+		polling.process();
+		assertEquals("[0, 1, 2]", pojo.numbers.toString());
+		assertEquals(2, polling.getCarryOver());
+		assertEquals(2, polling.getQueueDepth());
+
+		polling.dispatch(new NumberedEvent(5));
+		polling.process();
+		assertEquals("[0, 1, 2, 3, 4, 5]", pojo.numbers.toString());
+		assertEquals(0, polling.getCarryOver());
+		assertEquals(0, polling.getQueueDepth());
+		assertEquals(5, polling.getPeakQueueDepth());
+	}
+
+	@Test
+	public void Process_BacklogDrainedInSteps_DeliveredInOrder() {
+		final PollingEventDispatcher polling = new SteppingPollingEventDispatcher(25);
+		dispatcher = polling;
+		final RecordingPojo pojo = setupListenerPojo(RecordingPojo.class);
+
+		int next = 0;
+		for (; next < 100; next++) {
+			polling.dispatch(new NumberedEvent(next));
+		}
+		// three events per call, one new event per call, queue compacts along the way.
+		while (polling.getQueueDepth() > 0) {
+			polling.process();
+			if (next < 150) {
+				polling.dispatch(new NumberedEvent(next++));
+			}
+		}
+
+		assertEquals(150, pojo.numbers.size());
+		for (int i = 0; i < 150; i++) {
+			assertEquals(i, (int) pojo.numbers.get(i));
+		}
+	}
+
+	@Test
+	public void Process_TinyBudget_AlwaysDeliversOneEvent() {
+		final PollingEventDispatcher polling = new SteppingPollingEventDispatcher(1);
+		dispatcher = polling;
+		final RecordingPojo pojo = setupListenerPojo(RecordingPojo.class);
+
+		polling.dispatch(new NumberedEvent(0));
+		polling.dispatch(new NumberedEvent(1));
+		polling.process();
+		polling.process();
+		assertEquals("[0, 1]", pojo.numbers.toString());
+	}
+
+	@Test
+	public void Process_ListenerQueuesEvent_DeliveredNextProcess() {
+		final RecordingPojo pojo = setupListenerPojo(RecordingPojo.class);
+		pojo.requeue = (PollingEventDispatcher) dispatcher;
+
+		dispatcher.dispatch(new NumberedEvent(1));
+		dispatcher.process();
+		assertEquals("[1]", pojo.numbers.toString());
+
+		pojo.requeue = null;
+		dispatcher.process();
+		assertEquals("[1, 101]", pojo.numbers.toString());
+	}
 }
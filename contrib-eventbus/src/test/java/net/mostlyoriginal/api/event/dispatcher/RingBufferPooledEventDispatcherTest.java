@@ -0,0 +1,110 @@
+package net.mostlyoriginal.api.event.dispatcher;
+
+import net.mostlyoriginal.api.event.common.Event;
+import net.mostlyoriginal.api.event.common.EventDispatchStrategy;
+import net.mostlyoriginal.api.utils.pooling.Poolable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class RingBufferPooledEventDispatcherTest extends AbstractEventDispatcherTest {
+	@Override
+	protected EventDispatchStrategy createDispatcherInstance() {
+		return new RingBufferPooledEventDispatcher(2);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void Dispatch_ShouldNotDispatchInstancedEvents()
+	{
+		dispatcher.dispatch(new BaseEvent());
+	}
+
+	/** Dispatch wrapper. */
+	@Override
+	protected void dispatch(Event event) {
+		try {
+			dispatcher.dispatch(event.getClass());
+			// this dispatcher processes after a world tick.
+			dispatcher.process();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static class ValueEvent extends BaseEvent implements Poolable {
+		int value;
+
+		@Override
+		public void reset() {
+			value = 0;
+		}
+	}
+	public static class OtherValueEvent extends ValueEvent {}
+
+	public static class RecordingPojo {
+		public List<Integer> values = new ArrayList<>();
+
+		public void l(ValueEvent event) {
+			values.add(event.value);
+		}
+	}
+
+	@Test
+	public void Process_MixedTypesBeyondCapacity_DeliveredInDispatchOrder()
+	{
+		final RecordingPojo pojo = setupListenerPojo(RecordingPojo.class);
+		for (int i = 1; i <= 10; i++) {
+			final Class<? extends ValueEvent> type = i % 3 == 0 ? OtherValueEvent.class : ValueEvent.class;
+			dispatcher.dispatch(type).value = i;
+		}
+		dispatcher.process();
+
+		assertEquals(10, pojo.values.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i + 1, (int) pojo.values.get(i));
+		}
+	}
+
+	@Test
+	public void Process_DeliveredEvents_ResetAndReused()
+	{
+		final ValueEvent first = dispatcher.dispatch(ValueEvent.class);
+		first.value = 5;
+		dispatcher.process();
+		assertEquals(0, first.value);
+
+		final ValueEvent second = dispatcher.dispatch(ValueEvent.class);
+		final ValueEvent third = dispatcher.dispatch(ValueEvent.class);
+		dispatcher.process();
+		// ring of 2 wraps around, handing out the first slot again.
+		assertNotSame(first, second);
+		assertSame(first, third);
+	}
+
+	@Test
+	public void HighWaterMark_PeakPendingEvents_Tracked()
+	{
+		final RingBufferPooledEventDispatcher ringDispatcher = (RingBufferPooledEventDispatcher) dispatcher;
+		for (int i = 0; i < 5; i++) {
+			ringDispatcher.dispatch(ValueEvent.class);
+		}
+		ringDispatcher.process();
+		ringDispatcher.dispatch(ValueEvent.class);
+		ringDispatcher.process();
+
+		assertEquals(5, ringDispatcher.getHighWaterMark(ValueEvent.class));
+		assertEquals(8, ringDispatcher.getCapacity(ValueEvent.class));
+		assertEquals(0, ringDispatcher.getHighWaterMark(OtherValueEvent.class));
+
+		ringDispatcher.resetHighWaterMarks();
+		assertEquals(0, ringDispatcher.getHighWaterMark(ValueEvent.class));
+
+		ringDispatcher.ensureCapacity(OtherValueEvent.class, 100);
+		assertEquals(128, ringDispatcher.getCapacity(OtherValueEvent.class));
+	}
+}
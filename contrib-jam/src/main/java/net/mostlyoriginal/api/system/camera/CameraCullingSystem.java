@@ -0,0 +1,83 @@
+package net.mostlyoriginal.api.system.camera;
+
+import com.artemis.BaseSystem;
+import com.artemis.annotations.Wire;
+import com.artemis.utils.IntBag;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import net.mostlyoriginal.api.system.physics.SpatialIndexSystem;
+
+import java.util.BitSet;
+
+/**
+ * Opt-in camera frustum culling for render jobs.
+ *
+ * When present in the world, {@link net.mostlyoriginal.api.system.graphics.RenderBatchingSystem}
+ * culls once per frame and skips jobs of entities outside the camera view, so
+ * specialist render systems like AnimRenderSystem and LabelRenderSystem only
+ * process what is on screen.
+ *
+ * Visibility is resolved with the index of {@link SpatialIndexSystem}, so only
+ * entities with Pos and Bounds are culled, all others are always visible.
+ * Bounds should cover what is drawn, use margin for sprites that extend past them.
+ * Register SpatialIndexSystem before the render principal, so positions are current.
+ *
+ * @see SpatialIndexSystem
+ */
+@Wire
+public class CameraCullingSystem extends BaseSystem {
+
+    protected CameraSystem cameraSystem;
+    protected SpatialIndexSystem spatialIndexSystem;
+
+    private final float margin;
+    private final IntBag visibleIds = new IntBag();
+    private final BitSet visible = new BitSet();
+
+    public CameraCullingSystem() {
+        this(0);
+    }
+
+    /**
+     * @param margin extra distance around camera view in which entities are still visible.
+     */
+    public CameraCullingSystem(float margin) {
+        this.margin = margin;
+        // culling is triggered by the render principal, right before it dispatches.
+        setPassive(true);
+    }
+
+    /**
+     * Resolve visible entities for current camera position.
+     */
+    public void cull() {
+        final int[] ids = visibleIds.getData();
+        for (int i = 0, s = visibleIds.size(); i < s; i++) {
+            visible.clear(ids[i]);
+        }
+        visibleIds.clear();
+
+        final OrthographicCamera camera = cameraSystem.camera;
+        final float width = camera.viewportWidth * camera.zoom + margin * 2;
+        final float height = camera.viewportHeight * camera.zoom + margin * 2;
+        spatialIndexSystem.getIndex().getExact(visibleIds,
+                camera.position.x - width / 2,
+                camera.position.y - height / 2,
+                width, height);
+
+        final int[] visibleData = visibleIds.getData();
+        for (int i = 0, s = visibleIds.size(); i < s; i++) {
+            visible.set(visibleData[i]);
+        }
+    }
+
+    /**
+     * @return {@code true} if entity was in view during last cull, or is not culled at all.
+     */
+    public boolean isVisible(int entityId) {
+        return visible.get(entityId) || !spatialIndexSystem.getIndex().contains(entityId);
+    }
+
+    @Override
+    protected void processSystem() {
+    }
+}
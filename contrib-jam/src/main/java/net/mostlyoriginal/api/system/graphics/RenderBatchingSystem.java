@@ -11,6 +11,7 @@ import com.artemis.World;
 import com.artemis.annotations.Wire;
 import com.artemis.utils.Bag;
 import net.mostlyoriginal.api.component.graphics.Renderable;
+import net.mostlyoriginal.api.system.camera.CameraCullingSystem;
 import net.mostlyoriginal.api.system.delegate.EntityProcessAgent;
 import net.mostlyoriginal.api.system.delegate.EntityProcessPrincipal;
 import net.mostlyoriginal.api.utils.BagUtils;
@@ -23,6 +24,9 @@ import net.mostlyoriginal.api.utils.BagUtils;
  * and sorting, while the specialist systems take care of the actual rendering.
  * <p/>
  * Currently only supports one specialist handling system per entity.
+ * <p/>
+ * Add a {@link CameraCullingSystem} to the world to skip jobs of entities
+ * outside the camera view.
  *
  * @author Daan van Yperen
  * @see net.mostlyoriginal.api.component.graphics.Anim
@@ -32,6 +36,10 @@ public class RenderBatchingSystem extends BaseSystem implements EntityProcessPri
 
     protected ComponentMapper<Renderable> mRenderable;
 
+    /** Optional, culling is disabled if not in world. */
+    @Wire(failOnNull = false)
+    protected CameraCullingSystem cameraCullingSystem;
+
     protected final Bag<Job> sortedJobs = new Bag<>();
     public boolean sortedDirty = false;
     private Entity flyweight;
@@ -91,6 +99,11 @@ public class RenderBatchingSystem extends BaseSystem implements EntityProcessPri
             BagUtils.sort(sortedJobs);
         }
 
+        final CameraCullingSystem culling = cameraCullingSystem;
+        if (culling != null) {
+            culling.cull();
+        }
+
         // iterate through all the jobs.
         // @todo add support for entities being deleted.
         EntityProcessAgent activeAgent = null;
@@ -100,6 +113,11 @@ public class RenderBatchingSystem extends BaseSystem implements EntityProcessPri
             final Job job = (Job)data[i];
             final EntityProcessAgent agent = job.agent;
 
+            // skip off screen entities before paying for agent switches.
+            if (culling != null && !culling.isVisible(job.entityId)) {
+                continue;
+            }
+
             // agent changed? end() the last agent, and begin() the next agent.
             // @todo extend this with eventual texture/viewport/etc demarcation.
             if (agent != activeAgent) {
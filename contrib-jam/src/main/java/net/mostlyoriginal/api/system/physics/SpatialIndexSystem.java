@@ -0,0 +1,129 @@
+package net.mostlyoriginal.api.system.physics;
+
+import com.artemis.Aspect;
+import com.artemis.EntitySystem;
+import com.artemis.annotations.Wire;
+import com.artemis.utils.IntBag;
+import net.mostlyoriginal.api.component.basic.Bounds;
+import net.mostlyoriginal.api.component.basic.Pos;
+import net.mostlyoriginal.api.plugin.extendedcomponentmapper.M;
+import net.mostlyoriginal.api.utils.QuadTree;
+import net.mostlyoriginal.api.utils.SpatialIndex;
+
+import java.util.Arrays;
+
+/**
+ * Keeps a spatial index of all entities with a position and bounds.
+ *
+ * Entities are added to and removed from the index as they enter or leave
+ * the system. Each frame only entities whose world bounds changed since
+ * the last frame are re-indexed, static entities cost a compare.
+ *
+ * Other systems can wire this system and query the index, for example
+ * {@code spatialIndexSystem.getIndex().getExact(fill, x, y, width, height)}.
+ *
+ * @see net.mostlyoriginal.api.utils.QuadTree
+ * @see net.mostlyoriginal.api.utils.SpatialHashGrid
+ */
+@Wire
+public class SpatialIndexSystem extends EntitySystem {
+
+    protected M<Pos> mPos;
+    protected M<Bounds> mBounds;
+
+    protected final SpatialIndex index;
+
+    // last indexed world bounds, by entity id.
+    private float[] lastX = new float[128];
+    private float[] lastY = new float[128];
+    private float[] lastWidth = new float[128];
+    private float[] lastHeight = new float[128];
+
+    /**
+     * @param x      left of indexed area
+     * @param y      bottom of indexed area
+     * @param width  width of indexed area
+     * @param height height of indexed area
+     */
+    public SpatialIndexSystem(float x, float y, float width, float height) {
+        this(new QuadTree(x, y, width, height));
+    }
+
+    /**
+     * @param index index to keep up to date, should be empty.
+     */
+    public SpatialIndexSystem(SpatialIndex index) {
+        super(Aspect.all(Pos.class, Bounds.class));
+        this.index = index;
+    }
+
+    /**
+     * @return index of all entities in this system, do not modify.
+     */
+    public SpatialIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    protected void inserted(int entityId) {
+        super.inserted(entityId);
+        ensureCapacity(entityId);
+        store(entityId);
+        index.insert(entityId, lastX[entityId], lastY[entityId], lastWidth[entityId], lastHeight[entityId]);
+    }
+
+    @Override
+    protected void removed(int entityId) {
+        index.remove(entityId);
+        super.removed(entityId);
+    }
+
+    @Override
+    protected void processSystem() {
+        final IntBag actives = subscription.getEntities();
+        final int[] ids = actives.getData();
+        for (int i = 0, s = actives.size(); i < s; i++) {
+            final int id = ids[i];
+            if (store(id)) {
+                index.update(id, lastX[id], lastY[id], lastWidth[id], lastHeight[id]);
+            }
+        }
+    }
+
+    /**
+     * Store current world bounds of entity.
+     *
+     * @return {@code true} if bounds differ from the last stored bounds.
+     */
+    private boolean store(int id) {
+        final Pos pos = mPos.get(id);
+        final Bounds bounds = mBounds.get(id);
+        final float x = pos.xy.x + bounds.minx;
+        final float y = pos.xy.y + bounds.miny;
+        final float width = bounds.maxx - bounds.minx;
+        final float height = bounds.maxy - bounds.miny;
+
+        if (lastX[id] == x && lastY[id] == y && lastWidth[id] == width && lastHeight[id] == height) {
+            return false;
+        }
+        lastX[id] = x;
+        lastY[id] = y;
+        lastWidth[id] = width;
+        lastHeight[id] = height;
+        return true;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < lastX.length) return;
+        final int size = Math.max(lastX.length * 2, id + 1);
+        lastX = Arrays.copyOf(lastX, size);
+        lastY = Arrays.copyOf(lastY, size);
+        lastWidth = Arrays.copyOf(lastWidth, size);
+        lastHeight = Arrays.copyOf(lastHeight, size);
+    }
+
+    @Override
+    public void dispose() {
+        index.dispose();
+    }
+}
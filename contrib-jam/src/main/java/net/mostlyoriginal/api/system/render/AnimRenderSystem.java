@@ -25,8 +25,11 @@ import net.mostlyoriginal.api.system.delegate.EntityProcessPrincipal;
 /**
  * Render and progress animations.
  *
+ * Off screen entities can be culled by adding a CameraCullingSystem.
+ *
  * @author Daan van Yperen
  * @see net.mostlyoriginal.api.component.graphics.Anim
+ * @see net.mostlyoriginal.api.system.camera.CameraCullingSystem
  */
 @Wire
 public class AnimRenderSystem extends DeferredEntityProcessingSystem {
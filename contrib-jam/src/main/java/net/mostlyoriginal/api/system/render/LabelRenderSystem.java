@@ -24,8 +24,11 @@ import net.mostlyoriginal.api.system.delegate.EntityProcessPrincipal;
 /**
  * Basic label renderer.
  *
+ * Off screen entities can be culled by adding a CameraCullingSystem.
+ *
  * @author Daan van Yperen
  * @see Label
+ * @see net.mostlyoriginal.api.system.camera.CameraCullingSystem
  */
 @Wire
 public class LabelRenderSystem extends DeferredEntityProcessingSystem {